@@ -2,10 +2,14 @@ package com.spelledmobs;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.mojang.brigadier.arguments.BoolArgumentType;
+import com.mojang.brigadier.arguments.DoubleArgumentType;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.LongArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.spelledmobs.compatibility.IronsSpellsCompat;
 import com.spelledmobs.config.SpelledMobsConfig;
+import com.spelledmobs.data.SpellCasterCapability;
 import com.spelledmobs.data.SpellCastingData;
 import com.spelledmobs.manager.SpellCastingManager;
 import net.minecraft.commands.Commands;
@@ -26,9 +30,11 @@ import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.server.ServerLifecycleHooks;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Files;
+import java.util.List;
 
 /**
  * 主模组类
@@ -50,9 +56,11 @@ public class SpelledMobs {
 
         IEventBus modEventBus = FMLJavaModLoadingContext.get().getModEventBus();
         modEventBus.addListener(this::setup);
+        modEventBus.addListener(SpellCasterCapability::register);
 
         // 注册Forge总线事件处理器
         MinecraftForge.EVENT_BUS.register(this);
+        MinecraftForge.EVENT_BUS.addGenericListener(Entity.class, SpellCasterCapability::attach);
 
         // 初始化数据
         spellCastingData = new SpellCastingData();
@@ -127,6 +135,7 @@ public class SpelledMobs {
 
             // 加载法术数据
             spellCastingData.loadEntitySpells("data/" + MOD_ID + "/entity_spells");
+            spellCastingManager.reloadCasters(event.getServer());
             LOGGER.info("{}实体法术配置加载成功！", LOG_PREFIX);
         } catch (Exception e) {
             LOGGER.error("{}加载实体法术配置时发生错误", LOG_PREFIX, e);
@@ -167,6 +176,7 @@ public class SpelledMobs {
         LOGGER.info("{}正在重新加载实体法术配置...", LOG_PREFIX);
         try {
             spellCastingData.loadEntitySpells("data/" + MOD_ID + "/entity_spells");
+            spellCastingManager.reloadCasters(ServerLifecycleHooks.getCurrentServer());
             LOGGER.info("{}实体法术配置重新加载成功！", LOG_PREFIX);
         } catch (Exception e) {
             LOGGER.error("{}重新加载实体法术配置时发生错误", LOG_PREFIX, e);
@@ -194,7 +204,146 @@ public class SpelledMobs {
                                             SpelledMobsConfig.setDebugLogging(false);
                                             context.getSource().sendSuccess(() -> Component.literal("调试日志已禁用"), true);
                                             return 1;
-                                        })))
+                                        }))
+                                .then(Commands.literal("deterministic")
+                                        .then(Commands.argument("enabled", BoolArgumentType.bool())
+                                                .executes(context -> {
+                                                    boolean enabled = BoolArgumentType.getBool(context, "enabled");
+                                                    SpelledMobsConfig.setDeterministicRandom(enabled);
+                                                    context.getSource().sendSuccess(() -> Component.literal(
+                                                            enabled ? "确定性随机已启用" : "确定性随机已禁用"), true);
+                                                    return 1;
+                                                })))
+                                .then(Commands.literal("allies")
+                                        .then(Commands.argument("ignore", BoolArgumentType.bool())
+                                                .executes(context -> {
+                                                    boolean ignore = BoolArgumentType.getBool(context, "ignore");
+                                                    SpelledMobsConfig.setIgnoreAlliedTargets(ignore);
+                                                    context.getSource().sendSuccess(() -> Component.literal(
+                                                            ignore ? "已跳过同队目标" : "不再跳过同队目标"), true);
+                                                    return 1;
+                                                })))
+                                .then(Commands.literal("budget")
+                                        .then(Commands.argument("nanos", LongArgumentType.longArg(0))
+                                                .executes(context -> {
+                                                    long nanos = LongArgumentType.getLong(context, "nanos");
+                                                    SpelledMobsConfig.setTickBudgetNanos(nanos);
+                                                    context.getSource().sendSuccess(() -> Component.literal(
+                                                            nanos > 0 ? "每tick法术处理时间预算已设置为 " + nanos + " 纳秒"
+                                                                    : "已取消每tick法术处理时间预算"), true);
+                                                    return 1;
+                                                })))
+                                .then(Commands.literal("reacquire")
+                                        .then(Commands.argument("ticks", IntegerArgumentType.integer(0))
+                                                .executes(context -> {
+                                                    int ticks = IntegerArgumentType.getInteger(context, "ticks");
+                                                    SpelledMobsConfig.setTargetReacquireInterval(ticks);
+                                                    context.getSource().sendSuccess(() -> Component.literal(
+                                                            "重新搜索目标的间隔已设置为 " + ticks + " 刻"), true);
+                                                    return 1;
+                                                })))
+                                .then(Commands.literal("activation")
+                                        .then(Commands.literal("range")
+                                                .then(Commands.argument("full", DoubleArgumentType.doubleArg(0))
+                                                        .then(Commands.argument("reduced", DoubleArgumentType.doubleArg(0))
+                                                                .executes(context -> {
+                                                                    double full = DoubleArgumentType.getDouble(context, "full");
+                                                                    double reduced = DoubleArgumentType.getDouble(context,
+                                                                            "reduced");
+                                                                    if (reduced < full) {
+                                                                        context.getSource().sendFailure(Component.literal(
+                                                                                "降频激活距离不能小于完整激活距离"));
+                                                                        return 0;
+                                                                    }
+                                                                    SpelledMobsConfig.setActivationRanges(full, reduced);
+                                                                    // 默认激活范围在加载配置时写入各实体类型的配置
+                                                                    context.getSource().sendSuccess(() -> Component.literal(
+                                                                            "默认激活距离已设置为 " + full + " / " + reduced
+                                                                                    + "，执行 /spelledmobs reload 后生效"), true);
+                                                                    return 1;
+                                                                }))))
+                                        .then(Commands.literal("multiplier")
+                                                .then(Commands.argument("multiplier", IntegerArgumentType.integer(1))
+                                                        .executes(context -> {
+                                                            int multiplier = IntegerArgumentType.getInteger(context,
+                                                                    "multiplier");
+                                                            SpelledMobsConfig.setReducedActivationMultiplier(multiplier);
+                                                            context.getSource().sendSuccess(() -> Component.literal(
+                                                                    "降频范围内检查间隔的倍数已设置为 " + multiplier), true);
+                                                            return 1;
+                                                        })))
+                                        .then(Commands.literal("recheck")
+                                                .then(Commands.argument("ticks", IntegerArgumentType.integer(1))
+                                                        .executes(context -> {
+                                                            int ticks = IntegerArgumentType.getInteger(context, "ticks");
+                                                            SpelledMobsConfig.setInactiveRecheckInterval(ticks);
+                                                            context.getSource().sendSuccess(() -> Component.literal(
+                                                                    "超出激活范围的施法者重新检查间隔已设置为 " + ticks + " 刻"),
+                                                                    true);
+                                                            return 1;
+                                                        }))))
+                                .then(Commands.literal("dormantsweep")
+                                        .then(Commands.argument("ticks", IntegerArgumentType.integer(1))
+                                                .executes(context -> {
+                                                    int ticks = IntegerArgumentType.getInteger(context, "ticks");
+                                                    SpelledMobsConfig.setDormantSweepInterval(ticks);
+                                                    context.getSource().sendSuccess(() -> Component.literal(
+                                                            "休眠施法者的兜底唤醒间隔已设置为 " + ticks + " 刻"), true);
+                                                    return 1;
+                                                })))
+                                .then(Commands.literal("cleanup")
+                                        .then(Commands.argument("count", IntegerArgumentType.integer(0))
+                                                .executes(context -> {
+                                                    int count = IntegerArgumentType.getInteger(context, "count");
+                                                    SpelledMobsConfig.setCleanupBatchSize(count);
+                                                    context.getSource().sendSuccess(() -> Component.literal(
+                                                            count > 0 ? "每tick增量清理的施法者数量已设置为 " + count
+                                                                    : "已关闭增量清理"), true);
+                                                    return 1;
+                                                })))
+                                .then(Commands.literal("sight")
+                                        .then(Commands.literal("cache")
+                                                .then(Commands.argument("ticks", IntegerArgumentType.integer(1))
+                                                        .executes(context -> {
+                                                            int ticks = IntegerArgumentType.getInteger(context, "ticks");
+                                                            SpelledMobsConfig.setLineOfSightCacheTicks(ticks);
+                                                            context.getSource().sendSuccess(() -> Component.literal(
+                                                                    "视线检查结果的缓存时间已设置为 " + ticks + " 刻"), true);
+                                                            return 1;
+                                                        })))
+                                        .then(Commands.literal("budget")
+                                                .then(Commands.argument("count", IntegerArgumentType.integer(0))
+                                                        .executes(context -> {
+                                                            int count = IntegerArgumentType.getInteger(context, "count");
+                                                            SpelledMobsConfig.setRaycastBudgetPerTick(count);
+                                                            context.getSource().sendSuccess(() -> Component.literal(
+                                                                    count > 0 ? "每tick视线射线检查次数上限已设置为 " + count
+                                                                            : "已取消每tick视线射线检查次数上限"), true);
+                                                            return 1;
+                                                        })))))
+                        .then(Commands.literal("stats")
+                                .executes(context -> {
+                                    List<String> lines = spellCastingManager
+                                            .getStatistics(context.getSource().getServer());
+                                    if (lines.isEmpty()) {
+                                        context.getSource().sendSuccess(() -> Component.literal("暂无施法统计"), false);
+                                    }
+                                    for (String line : lines) {
+                                        context.getSource().sendSuccess(() -> Component.literal(line), false);
+                                    }
+                                    return lines.size();
+                                }))
+                        .then(Commands.literal("conditions")
+                                .executes(context -> {
+                                    List<String> lines = spellCastingData.getConditionStatistics();
+                                    if (lines.isEmpty()) {
+                                        context.getSource().sendSuccess(() -> Component.literal("暂无法术条件统计"), false);
+                                    }
+                                    for (String line : lines) {
+                                        context.getSource().sendSuccess(() -> Component.literal(line), false);
+                                    }
+                                    return lines.size();
+                                }))
                         .then(Commands.literal("reload")
                                 .executes(context -> {
                                     reloadData();
@@ -1,22 +1,31 @@
 package com.spelledmobs.compatibility;
 
 import com.spelledmobs.SpelledMobs;
+import com.spelledmobs.data.SpellIds;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.sounds.SoundEvent;
 import net.minecraft.sounds.SoundSource;
 import net.minecraftforge.fml.ModList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * 简化版Iron's Spells 'n Spellbooks模组兼容类
- * 使用反射调用Iron's Spells的API，避免直接依赖
+ * 使用反射查找Iron's Spells的API，避免直接依赖；查找在初始化时完成一次，
+ * 之后施法通过 {@link Handles} 中的常量方法句柄调用，不再使用反射
  */
 public class IronsSpellsCompat {
     private static final Logger LOGGER = LoggerFactory.getLogger(SpelledMobs.MOD_ID);
@@ -24,19 +33,10 @@ public class IronsSpellsCompat {
     private static boolean isLoaded = false;
     private static boolean hasLoggedAvailableSpells = false;
 
-    private static Method getSpellMethod;
-    private static Method onCastMethod;
-    private static Method setAdditionalCastDataMethod;
-    private static Constructor<?> targetEntityCastDataConstructor;
-    private static Constructor<?> createMagicDataMethod;
-    private static Field mobCastSourceField;
-
-    private static Class<?> spellRegistryClass;
-    private static Class<?> abstractSpellClass;
-    private static Class<?> castSourceClass;
-    private static Class<?> magicDataClass;
-    private static Class<?> iMagicEntityClass;
-    private static Class<?> targetEntityCastDataClass;
+    // 已知法术ID集合，用于校验
+    private static final Set<String> KNOWN_SPELLS = new HashSet<>(getKnownSpells());
+    // 按法术编号缓存的法术对象，避免每次施法都查询法术注册表
+    private static Object[] spellCache = new Object[64];
 
     /**
      * 初始化兼容性代码
@@ -57,59 +57,17 @@ public class IronsSpellsCompat {
 
             LOGGER.info("[SpelledMobs] 检测到Iron's Spells 'n Spellbooks模组，初始化兼容层...");
 
-            // 获取必要的类和方法
-            LOGGER.debug("[SpelledMobs] 加载SpellRegistry类...");
-            spellRegistryClass = Class.forName("io.redspace.ironsspellbooks.api.registry.SpellRegistry");
-            LOGGER.debug("[SpelledMobs] 加载AbstractSpell类...");
-            abstractSpellClass = Class.forName("io.redspace.ironsspellbooks.api.spells.AbstractSpell");
-            LOGGER.debug("[SpelledMobs] 加载CastSource类...");
-            castSourceClass = Class.forName("io.redspace.ironsspellbooks.api.spells.CastSource");
-            LOGGER.debug("[SpelledMobs] 加载MagicData类...");
-            magicDataClass = Class.forName("io.redspace.ironsspellbooks.api.magic.MagicData");
-            LOGGER.debug("[SpelledMobs] 加载IMagicEntity接口...");
-            iMagicEntityClass = Class.forName("io.redspace.ironsspellbooks.api.entity.IMagicEntity");
-            LOGGER.debug("[SpelledMobs] 加载TargetEntityCastData类...");
-            targetEntityCastDataClass = Class
-                    .forName("io.redspace.ironsspellbooks.capabilities.magic.TargetEntityCastData");
-
-            // 获取MOB枚举值
-            LOGGER.debug("[SpelledMobs] 获取MOB施法源...");
-            mobCastSourceField = castSourceClass.getDeclaredField("MOB");
-
-            // 获取getSpell方法
-            LOGGER.debug("[SpelledMobs] 获取getSpell方法...");
-            getSpellMethod = spellRegistryClass.getDeclaredMethod("getSpell", String.class);
-
-            // 获取castSpell方法
-            LOGGER.debug("[SpelledMobs] 获取onCast方法...");
-            onCastMethod = abstractSpellClass.getDeclaredMethod(
-                    "onCast",
-                    Level.class,
-                    int.class,
-                    LivingEntity.class,
-                    castSourceClass,
-                    magicDataClass);
-
-            // 获取创建MagicData的构造函数
-            LOGGER.debug("[SpelledMobs] 获取MagicData构造函数...");
-            createMagicDataMethod = magicDataClass.getDeclaredConstructor(boolean.class);
-            createMagicDataMethod.setAccessible(true);
-
-            // 获取设置目标数据的方法
-            LOGGER.debug("[SpelledMobs] 获取setAdditionalCastData方法...");
-            setAdditionalCastDataMethod = magicDataClass.getDeclaredMethod("setAdditionalCastData",
-                    Class.forName("io.redspace.ironsspellbooks.api.spells.ICastData"));
-
-            // 获取TargetEntityCastData构造函数
-            LOGGER.debug("[SpelledMobs] 获取TargetEntityCastData构造函数...");
-            targetEntityCastDataConstructor = targetEntityCastDataClass.getDeclaredConstructor(LivingEntity.class);
+            // 首次访问时加载 Handles，查找并绑定所有需要的类、方法和构造函数
+            if (Handles.MOB_CAST_SOURCE == null) {
+                throw new IllegalStateException("无法获取MOB施法源");
+            }
 
             initialized = true;
             LOGGER.info("[SpelledMobs] Iron's Spells 'n Spellbooks兼容层初始化成功！现在可以使用施法功能");
 
             // 输出可用的法术列表
             logAvailableSpells();
-        } catch (Exception e) {
+        } catch (Exception | LinkageError e) {
             initialized = false;
             isLoaded = false;
             LOGGER.error("[SpelledMobs] 初始化Iron's Spells 'n Spellbooks兼容层时出错:", e);
@@ -237,111 +195,109 @@ public class IronsSpellsCompat {
      */
     public static boolean castSpell(LivingEntity entity, LivingEntity target, Level level, String spellId,
             int spellLevel) {
+        return castSpell(entity, target, level, SpellIds.intern(spellId), spellLevel);
+    }
+
+    /**
+     * 让普通实体施放法术
+     *
+     * @param caster     施法者实体
+     * @param target     目标实体
+     * @param level      世界
+     * @param spellIndex 法术编号，见 {@link SpellIds}
+     * @param spellLevel 法术等级
+     * @return 是否成功施放
+     */
+    public static boolean castSpell(LivingEntity entity, LivingEntity target, Level level, int spellIndex,
+            int spellLevel) {
+        String spellId = SpellIds.getName(spellIndex);
         if (!isLoaded || !initialized) {
             LOGGER.warn("[SpelledMobs] 尝试施放法术 {} 但铁魔法兼容层未初始化", spellId);
             return false;
         }
 
-        LOGGER.debug("[SpelledMobs] 实体 {} 尝试向 {} 施放法术 {} (等级 {})",
-                entity.getName().getString(),
-                target.getName().getString(),
-                spellId,
-                spellLevel);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[SpelledMobs] 实体 {} 尝试向 {} 施放法术 {} (等级 {})",
+                    entity.getName().getString(),
+                    target.getName().getString(),
+                    spellId,
+                    spellLevel);
+        }
 
         try {
-            // 处理法术ID，确保格式正确（添加模组前缀如果需要）
-            if (!spellId.contains(":")) {
-                String originalId = spellId;
-                spellId = "irons_spellbooks:" + spellId;
-                LOGGER.debug("[SpelledMobs] 法术ID转换: {} -> {}", originalId, spellId);
-            }
-
-            // 获取法术对象前验证法术ID是否可能有效
-            if (!isValidSpellId(spellId)) {
-                LOGGER.warn("[SpelledMobs] 法术ID {} 可能无效，不在已知法术列表中", spellId);
-            }
-
             // 获取法术
-            LOGGER.debug("[SpelledMobs] 尝试获取法术对象: {}", spellId);
-            Object spell = getSpellMethod.invoke(null, spellId);
+            Object spell = getSpell(spellIndex);
             if (spell == null) {
                 LOGGER.warn("[SpelledMobs] 未找到法术: {}，请检查法术ID是否正确", spellId);
                 return false;
             }
-            LOGGER.debug("[SpelledMobs] 成功获取法术对象: {}", spellId);
-
-            // 获取MOB施法源
-            Object mobCastSource = mobCastSourceField.get(null);
-
-            // 创建临时MagicData
-            LOGGER.debug("[SpelledMobs] 创建MagicData对象...");
-            Object magicData = createMagicDataMethod.newInstance(true); // true表示是生物
 
-            // 创建目标数据
-            LOGGER.debug("[SpelledMobs] 创建目标数据对象，目标: {}", target.getName().getString());
-            Object targetData = targetEntityCastDataConstructor.newInstance(target);
+            // 创建临时MagicData，true表示是生物
+            Object magicData = (Object) Handles.NEW_MAGIC_DATA.invokeExact(true);
 
-            // 设置目标数据
-            LOGGER.debug("[SpelledMobs] 设置目标数据...");
-            setAdditionalCastDataMethod.invoke(magicData, targetData);
+            // 创建并设置目标数据
+            Object targetData = (Object) Handles.NEW_TARGET_DATA.invokeExact(target);
+            Handles.SET_ADDITIONAL_CAST_DATA.invokeExact(magicData, targetData);
 
             // 调用onCast方法实现法术效果
-            LOGGER.debug("[SpelledMobs] 调用onCast方法，实际施放法术...");
-            onCastMethod.invoke(spell, level, spellLevel, entity, mobCastSource, magicData);
+            Handles.ON_CAST.invokeExact(spell, level, spellLevel, entity, Handles.MOB_CAST_SOURCE, magicData);
             LOGGER.info("[SpelledMobs] 法术施放成功: {} -> {} ({})",
                     entity.getName().getString(),
                     target.getName().getString(),
                     spellId);
 
-            // 播放法术音效和粒子效果
-            if (!level.isClientSide) {
+            // 播放法术音效，当前版本的铁魔法没有对应方法时跳过
+            if (!level.isClientSide && Handles.GET_CAST_FINISH_SOUND != null) {
                 try {
-                    LOGGER.debug("[SpelledMobs] 尝试播放法术音效...");
-                    Method getCastFinishSoundMethod = abstractSpellClass.getDeclaredMethod("getCastFinishSound");
-                    Object soundOptional = getCastFinishSoundMethod.invoke(spell);
-
-                    if (soundOptional != null) {
-                        Class<?> optionalClass = Class.forName("java.util.Optional");
-                        Method isPresent = optionalClass.getDeclaredMethod("isPresent");
-                        Method get = optionalClass.getDeclaredMethod("get");
-
-                        if ((Boolean) isPresent.invoke(soundOptional)) {
-                            Object sound = get.invoke(soundOptional);
-                            // 播放声音，使用反射而不是直接强制转换
-                            try {
-                                // 找到playSound方法
-                                Class<?> levelClass = Level.class;
-                                Method playSoundMethod = null;
-
-                                for (Method method : levelClass.getMethods()) {
-                                    if (method.getName().equals("playSound") && method.getParameterCount() == 7) {
-                                        playSoundMethod = method;
-                                        break;
-                                    }
-                                }
-
-                                if (playSoundMethod != null) {
-                                    playSoundMethod.invoke(level, null, entity.getX(), entity.getY(), entity.getZ(),
-                                            sound, SoundSource.HOSTILE, 1.0f, 1.0f);
-                                    LOGGER.debug("[SpelledMobs] 播放法术音效成功");
-                                }
-                            } catch (Exception ex) {
-                                LOGGER.warn("[SpelledMobs] 播放法术音效失败", ex);
-                            }
-                        }
+                    Optional<?> sound = (Optional<?>) Handles.GET_CAST_FINISH_SOUND.invokeExact(spell);
+                    if (sound != null && sound.isPresent() && sound.get() instanceof SoundEvent soundEvent) {
+                        level.playSound(null, entity.getX(), entity.getY(), entity.getZ(),
+                                soundEvent, SoundSource.HOSTILE, 1.0f, 1.0f);
                     }
-                } catch (Exception ex) {
+                } catch (Throwable ex) {
                     LOGGER.warn("[SpelledMobs] 处理法术音效时出错", ex);
                 }
             }
 
             return true;
-        } catch (Exception e) {
+        } catch (Throwable e) {
             LOGGER.error("[SpelledMobs] 施放法术 {} 过程中发生错误", spellId, e);
             return false;
         }
     }
 
+    /**
+     * 按编号获取法术对象，首次获取时查询法术注册表并缓存
+     *
+     * @param spellIndex 法术编号
+     * @return 法术对象，未找到时返回null
+     */
+    private static Object getSpell(int spellIndex) throws Throwable {
+        Object[] cache = spellCache;
+        if (spellIndex < cache.length && cache[spellIndex] != null) {
+            return cache[spellIndex];
+        }
+
+        String spellId = SpellIds.getName(spellIndex);
+
+        // 获取法术对象前验证法术ID是否可能有效
+        if (!isValidSpellId(spellId)) {
+            LOGGER.warn("[SpelledMobs] 法术ID {} 可能无效，不在已知法术列表中", spellId);
+        }
+
+        LOGGER.debug("[SpelledMobs] 尝试获取法术对象: {}", spellId);
+        Object spell = (Object) Handles.GET_SPELL.invokeExact(spellId);
+        if (spell != null) {
+            if (spellIndex >= cache.length) {
+                cache = Arrays.copyOf(cache, Math.max(SpellIds.size(), spellIndex + 1));
+                spellCache = cache;
+            }
+            cache[spellIndex] = spell;
+            LOGGER.debug("[SpelledMobs] 成功获取法术对象: {}", spellId);
+        }
+        return spell;
+    }
+
     /**
      * 检查法术ID是否在已知法术列表中
      * 
@@ -349,7 +305,7 @@ public class IronsSpellsCompat {
      * @return 是否是已知的法术ID
      */
     private static boolean isValidSpellId(String spellId) {
-        return getKnownSpells().contains(spellId);
+        return KNOWN_SPELLS.contains(spellId);
     }
 
     /**
@@ -365,4 +321,95 @@ public class IronsSpellsCompat {
     public static boolean isIronsSpellsLoaded() {
         return isLoaded;
     }
-}
\ No newline at end of file
+
+    /**
+     * 绑定到Iron's Spells API的方法句柄
+     * 作为静态常量保存，JIT可以把调用内联为直接调用；只在确认铁魔法已加载后才会访问并加载这个类
+     * 句柄的参数和返回值统一转换为Object，调用处使用 invokeExact，不产生装箱和参数数组
+     */
+    private static final class Handles {
+        // CastSource.MOB
+        static final Object MOB_CAST_SOURCE;
+        // (String) -> AbstractSpell
+        static final MethodHandle GET_SPELL;
+        // (boolean) -> MagicData
+        static final MethodHandle NEW_MAGIC_DATA;
+        // (LivingEntity) -> TargetEntityCastData
+        static final MethodHandle NEW_TARGET_DATA;
+        // (MagicData, ICastData) -> void
+        static final MethodHandle SET_ADDITIONAL_CAST_DATA;
+        // (AbstractSpell, Level, int, LivingEntity, CastSource, MagicData) -> void
+        static final MethodHandle ON_CAST;
+        // (AbstractSpell) -> Optional<SoundEvent>，只用于播放音效，找不到时为null
+        static final MethodHandle GET_CAST_FINISH_SOUND;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+                LOGGER.debug("[SpelledMobs] 加载铁魔法API类...");
+                Class<?> spellRegistryClass = Class.forName("io.redspace.ironsspellbooks.api.registry.SpellRegistry");
+                Class<?> abstractSpellClass = Class.forName("io.redspace.ironsspellbooks.api.spells.AbstractSpell");
+                Class<?> castSourceClass = Class.forName("io.redspace.ironsspellbooks.api.spells.CastSource");
+                Class<?> magicDataClass = Class.forName("io.redspace.ironsspellbooks.api.magic.MagicData");
+                Class<?> castDataClass = Class.forName("io.redspace.ironsspellbooks.api.spells.ICastData");
+                Class<?> targetEntityCastDataClass = Class
+                        .forName("io.redspace.ironsspellbooks.capabilities.magic.TargetEntityCastData");
+
+                LOGGER.debug("[SpelledMobs] 获取MOB施法源...");
+                Field mobCastSourceField = castSourceClass.getDeclaredField("MOB");
+                MOB_CAST_SOURCE = mobCastSourceField.get(null);
+
+                LOGGER.debug("[SpelledMobs] 绑定getSpell方法...");
+                GET_SPELL = lookup.unreflect(spellRegistryClass.getDeclaredMethod("getSpell", String.class))
+                        .asType(MethodType.methodType(Object.class, String.class));
+
+                LOGGER.debug("[SpelledMobs] 绑定MagicData构造函数...");
+                Constructor<?> magicDataConstructor = magicDataClass.getDeclaredConstructor(boolean.class);
+                magicDataConstructor.setAccessible(true);
+                NEW_MAGIC_DATA = lookup.unreflectConstructor(magicDataConstructor)
+                        .asType(MethodType.methodType(Object.class, boolean.class));
+
+                LOGGER.debug("[SpelledMobs] 绑定TargetEntityCastData构造函数...");
+                NEW_TARGET_DATA = lookup
+                        .unreflectConstructor(targetEntityCastDataClass.getDeclaredConstructor(LivingEntity.class))
+                        .asType(MethodType.methodType(Object.class, LivingEntity.class));
+
+                LOGGER.debug("[SpelledMobs] 绑定setAdditionalCastData方法...");
+                SET_ADDITIONAL_CAST_DATA = lookup
+                        .unreflect(magicDataClass.getDeclaredMethod("setAdditionalCastData", castDataClass))
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+                LOGGER.debug("[SpelledMobs] 绑定onCast方法...");
+                ON_CAST = lookup.unreflect(abstractSpellClass.getDeclaredMethod("onCast",
+                        Level.class, int.class, LivingEntity.class, castSourceClass, magicDataClass))
+                        .asType(MethodType.methodType(void.class, Object.class, Level.class, int.class,
+                                LivingEntity.class, Object.class, Object.class));
+
+                GET_CAST_FINISH_SOUND = bindCastFinishSound(lookup, abstractSpellClass);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        /**
+         * 绑定getCastFinishSound方法
+         * 音效不影响施法，绑定失败时只记录警告，不让整个兼容层初始化失败
+         *
+         * @return 方法句柄，绑定失败时返回null
+         */
+        private static MethodHandle bindCastFinishSound(MethodHandles.Lookup lookup, Class<?> abstractSpellClass) {
+            LOGGER.debug("[SpelledMobs] 绑定getCastFinishSound方法...");
+            try {
+                return lookup.unreflect(abstractSpellClass.getDeclaredMethod("getCastFinishSound"))
+                        .asType(MethodType.methodType(Optional.class, Object.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.warn("[SpelledMobs] 无法绑定getCastFinishSound方法，施法时将不播放法术音效", e);
+                return null;
+            }
+        }
+
+        private Handles() {
+        }
+    }
+}
@@ -18,6 +18,42 @@ public class SpelledMobsConfig {
     // 最大检查距离
     private static int maxCheckDistance = 64;
 
+    // 每个世界每tick处理法术的时间预算（纳秒），0表示不限制
+    private static long tickBudgetNanos = 2_000_000L;
+
+    // 默认的完整激活距离，距离最近玩家在此范围内的施法者正常检查
+    private static double fullActivationRange = 32.0;
+
+    // 默认的降频激活距离，超出此范围的施法者跳过检查
+    private static double reducedActivationRange = 64.0;
+
+    // 降频范围内检查间隔的倍数
+    private static int reducedActivationMultiplier = 4;
+
+    // 超出激活范围的施法者重新检查距离的间隔（刻）
+    private static int inactiveRecheckInterval = 100;
+
+    // 休眠施法者的兜底唤醒检查间隔（刻）
+    private static int dormantSweepInterval = 100;
+
+    // 每个世界每tick增量清理时最多检查的施法者数量
+    private static int cleanupBatchSize = 16;
+
+    // 是否使用确定性随机，按世界种子、实体ID和游戏刻为每次施法决策播种，用于重放战斗
+    private static boolean deterministicRandom = false;
+
+    // 视线检查结果的缓存时间（刻）
+    private static int lineOfSightCacheTicks = 10;
+
+    // 所有施法者每tick最多进行的视线射线检查次数，0表示不限制
+    private static int raycastBudgetPerTick = 256;
+
+    // 施法者沿用上一次目标时，重新完整搜索目标的间隔（刻），0表示每次都完整搜索
+    private static int targetReacquireInterval = 100;
+
+    // 是否跳过与施法者同一队伍的目标（isAlliedTo，包括记分板队伍和驯服生物的主人）
+    private static boolean ignoreAlliedTargets = true;
+
     /**
      * 获取是否启用调试日志
      */
@@ -88,4 +124,201 @@ public class SpelledMobsConfig {
         maxCheckDistance = distance;
         SpelledMobs.LOGGER.info("最大检查距离已设置为: {}", distance);
     }
-}
\ No newline at end of file
+
+    /**
+     * 获取每个世界每tick处理法术的时间预算（纳秒）
+     */
+    public static long getTickBudgetNanos() {
+        return tickBudgetNanos;
+    }
+
+    /**
+     * 设置每个世界每tick处理法术的时间预算
+     *
+     * @param nanos 纳秒数，0表示不限制
+     */
+    public static void setTickBudgetNanos(long nanos) {
+        if (nanos < 0) {
+            SpelledMobs.LOGGER.warn("尝试设置无效的时间预算: {}", nanos);
+            return;
+        }
+        tickBudgetNanos = nanos;
+        SpelledMobs.LOGGER.info("每tick法术处理时间预算已设置为: {} 纳秒", nanos);
+    }
+
+    /**
+     * 获取默认的完整激活距离
+     */
+    public static double getFullActivationRange() {
+        return fullActivationRange;
+    }
+
+    /**
+     * 获取默认的降频激活距离
+     */
+    public static double getReducedActivationRange() {
+        return reducedActivationRange;
+    }
+
+    /**
+     * 设置默认的激活距离
+     *
+     * @param full    完整激活距离
+     * @param reduced 降频激活距离，不小于完整激活距离
+     */
+    public static void setActivationRanges(double full, double reduced) {
+        if (full < 0 || reduced < full) {
+            SpelledMobs.LOGGER.warn("尝试设置无效的激活距离: {} / {}", full, reduced);
+            return;
+        }
+        fullActivationRange = full;
+        reducedActivationRange = reduced;
+        SpelledMobs.LOGGER.info("默认激活距离已设置为: {} / {}", full, reduced);
+    }
+
+    /**
+     * 获取降频范围内检查间隔的倍数
+     */
+    public static int getReducedActivationMultiplier() {
+        return reducedActivationMultiplier;
+    }
+
+    /**
+     * 设置降频范围内检查间隔的倍数
+     *
+     * @param multiplier 倍数，至少为1
+     */
+    public static void setReducedActivationMultiplier(int multiplier) {
+        reducedActivationMultiplier = Math.max(1, multiplier);
+    }
+
+    /**
+     * 获取超出激活范围的施法者重新检查距离的间隔（刻）
+     */
+    public static int getInactiveRecheckInterval() {
+        return inactiveRecheckInterval;
+    }
+
+    /**
+     * 设置超出激活范围的施法者重新检查距离的间隔
+     *
+     * @param ticks 刻数，至少为1
+     */
+    public static void setInactiveRecheckInterval(int ticks) {
+        inactiveRecheckInterval = Math.max(1, ticks);
+    }
+
+    /**
+     * 获取休眠施法者的兜底唤醒检查间隔（刻）
+     */
+    public static int getDormantSweepInterval() {
+        return dormantSweepInterval;
+    }
+
+    /**
+     * 设置休眠施法者的兜底唤醒检查间隔
+     *
+     * @param ticks 刻数，至少为1
+     */
+    public static void setDormantSweepInterval(int ticks) {
+        dormantSweepInterval = Math.max(1, ticks);
+    }
+
+    /**
+     * 获取每tick增量清理时最多检查的施法者数量
+     */
+    public static int getCleanupBatchSize() {
+        return cleanupBatchSize;
+    }
+
+    /**
+     * 设置每tick增量清理时最多检查的施法者数量
+     *
+     * @param count 数量，0表示关闭增量清理
+     */
+    public static void setCleanupBatchSize(int count) {
+        cleanupBatchSize = Math.max(0, count);
+    }
+
+    /**
+     * 获取是否使用确定性随机
+     */
+    public static boolean isDeterministicRandom() {
+        return deterministicRandom;
+    }
+
+    /**
+     * 设置是否使用确定性随机
+     *
+     * @param enabled 是否启用
+     */
+    public static void setDeterministicRandom(boolean enabled) {
+        deterministicRandom = enabled;
+        SpelledMobs.LOGGER.info("确定性随机已{}", enabled ? "启用" : "禁用");
+    }
+
+    /**
+     * 获取视线检查结果的缓存时间（刻）
+     */
+    public static int getLineOfSightCacheTicks() {
+        return lineOfSightCacheTicks;
+    }
+
+    /**
+     * 设置视线检查结果的缓存时间
+     *
+     * @param ticks 刻数，至少为1
+     */
+    public static void setLineOfSightCacheTicks(int ticks) {
+        lineOfSightCacheTicks = Math.max(1, ticks);
+    }
+
+    /**
+     * 获取每tick最多进行的视线射线检查次数
+     */
+    public static int getRaycastBudgetPerTick() {
+        return raycastBudgetPerTick;
+    }
+
+    /**
+     * 设置每tick最多进行的视线射线检查次数
+     *
+     * @param count 次数，0表示不限制
+     */
+    public static void setRaycastBudgetPerTick(int count) {
+        raycastBudgetPerTick = Math.max(0, count);
+    }
+
+    /**
+     * 获取重新完整搜索目标的间隔（刻）
+     */
+    public static int getTargetReacquireInterval() {
+        return targetReacquireInterval;
+    }
+
+    /**
+     * 设置重新完整搜索目标的间隔
+     *
+     * @param ticks 刻数，0表示每次都完整搜索
+     */
+    public static void setTargetReacquireInterval(int ticks) {
+        targetReacquireInterval = Math.max(0, ticks);
+    }
+
+    /**
+     * 获取是否跳过与施法者同一队伍的目标
+     */
+    public static boolean isIgnoreAlliedTargets() {
+        return ignoreAlliedTargets;
+    }
+
+    /**
+     * 设置是否跳过与施法者同一队伍的目标
+     *
+     * @param enabled 是否跳过
+     */
+    public static void setIgnoreAlliedTargets(boolean enabled) {
+        ignoreAlliedTargets = enabled;
+        SpelledMobs.LOGGER.info("跳过同队目标已{}", enabled ? "启用" : "禁用");
+    }
+}
@@ -0,0 +1,88 @@
+package com.spelledmobs.data;
+
+import com.google.gson.JsonObject;
+import com.spelledmobs.config.SpelledMobsConfig;
+
+/**
+ * 施法者激活范围，按与最近玩家的距离划分施法检查的频率
+ * 在完整范围内正常检查，在降频范围内按较低频率检查，超出降频范围则跳过
+ */
+public class ActivationRange {
+    private final double fullRange;
+    private final double reducedRange;
+    private final double fullRangeSqr;
+    private final double reducedRangeSqr;
+
+    /**
+     * 创建激活范围
+     *
+     * @param fullRange    完整检查的距离
+     * @param reducedRange 降频检查的距离，不小于完整检查的距离
+     */
+    public ActivationRange(double fullRange, double reducedRange) {
+        this.fullRange = Math.max(0, fullRange);
+        this.reducedRange = Math.max(this.fullRange, reducedRange);
+        this.fullRangeSqr = this.fullRange * this.fullRange;
+        this.reducedRangeSqr = this.reducedRange * this.reducedRange;
+    }
+
+    /**
+     * 使用全局配置的默认激活范围
+     */
+    public static ActivationRange defaults() {
+        return new ActivationRange(SpelledMobsConfig.getFullActivationRange(),
+                SpelledMobsConfig.getReducedActivationRange());
+    }
+
+    /**
+     * 从JSON解析激活范围，缺省的字段使用全局配置
+     *
+     * @param jsonObject 形如 {"full": 32.0, "reduced": 64.0} 的JSON对象
+     * @return 激活范围
+     */
+    public static ActivationRange fromJson(JsonObject jsonObject) {
+        double fullRange = SpelledMobsConfig.getFullActivationRange();
+        if (jsonObject.has("full")) {
+            fullRange = jsonObject.get("full").getAsDouble();
+        }
+
+        double reducedRange = Math.max(fullRange, SpelledMobsConfig.getReducedActivationRange());
+        if (jsonObject.has("reduced")) {
+            reducedRange = jsonObject.get("reduced").getAsDouble();
+        }
+
+        return new ActivationRange(fullRange, reducedRange);
+    }
+
+    /**
+     * 获取完整检查的距离
+     */
+    public double getFullRange() {
+        return fullRange;
+    }
+
+    /**
+     * 获取降频检查的距离
+     */
+    public double getReducedRange() {
+        return reducedRange;
+    }
+
+    /**
+     * 是否在完整检查范围内
+     *
+     * @param distanceSqr 与最近玩家距离的平方
+     */
+    public boolean isFullyActive(double distanceSqr) {
+        return distanceSqr <= fullRangeSqr;
+    }
+
+    /**
+     * 是否在激活范围内（包括降频范围）
+     *
+     * @param distanceSqr 与最近玩家距离的平方
+     */
+    public boolean isActive(double distanceSqr) {
+        return distanceSqr <= reducedRangeSqr;
+    }
+}
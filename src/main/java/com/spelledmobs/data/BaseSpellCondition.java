@@ -43,6 +43,12 @@ public abstract class BaseSpellCondition implements SpellCondition {
         return operator;
     }
 
+    @Override
+    public String getKey() {
+        return type.getId() + "|" + operator.getId() + "|" + stringValue + "|" + numericValue + "|" + invert + "|"
+                + extraData;
+    }
+
     /**
      * 获取字符串值
      */
@@ -0,0 +1,242 @@
+package com.spelledmobs.data;
+
+import com.spelledmobs.data.SpellCondition.ComparisonOperator;
+import com.spelledmobs.data.SpellCondition.ConditionType;
+import com.spelledmobs.data.conditions.CompositeCondition;
+import com.spelledmobs.data.conditions.CompositeCondition.Mode;
+import com.spelledmobs.data.conditions.ConstantCondition;
+import com.spelledmobs.data.conditions.DistanceRangeCondition;
+import com.spelledmobs.data.conditions.TargetDistanceCondition;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 条件编译器，在加载配置时化简条件树
+ * 折叠常量、展开嵌套的同类组合、合并重复的子条件，并把同一组中的多个目标距离上下界合并为一个区间检查
+ */
+public final class ConditionCompiler {
+
+    private ConditionCompiler() {
+    }
+
+    /**
+     * 编译法术的顶层条件列表（隐式的全部满足）
+     *
+     * @param conditions 解析得到的条件
+     * @return 化简后的顶层条件，全部满足时返回空列表
+     */
+    public static List<SpellCondition> compileAll(List<SpellCondition> conditions) {
+        SpellCondition compiled = compile(new CompositeCondition(Mode.ALL, conditions));
+        List<SpellCondition> result = new ArrayList<>();
+        if (compiled instanceof CompositeCondition composite && composite.getMode() == Mode.ALL) {
+            result.addAll(composite.getChildren());
+        } else if (compiled != ConstantCondition.TRUE) {
+            result.add(compiled);
+        }
+        return result;
+    }
+
+    /**
+     * 编译单个条件
+     *
+     * @param condition 条件
+     * @return 化简后的条件
+     */
+    public static SpellCondition compile(SpellCondition condition) {
+        if (condition instanceof CompositeCondition composite) {
+            return switch (composite.getMode()) {
+                case ALL, ANY -> compileGroup(composite.getMode(), composite.getChildren());
+                case NOT -> compileNot(composite.getChildren());
+            };
+        }
+        if (condition.getType() == ConditionType.RANDOM_CHANCE && condition instanceof BaseSpellCondition base) {
+            return foldRandomChance(base);
+        }
+        return condition;
+    }
+
+    /**
+     * 编译全部满足或任一满足的组合
+     */
+    private static SpellCondition compileGroup(Mode mode, List<SpellCondition> children) {
+        // 全部满足时遇到假即为假，任一满足时遇到真即为真
+        boolean absorbing = mode == Mode.ANY;
+
+        List<SpellCondition> flattened = new ArrayList<>();
+        for (SpellCondition child : children) {
+            SpellCondition compiled = compile(child);
+            if (compiled instanceof ConstantCondition constant) {
+                if (constant.getValue() == absorbing) {
+                    return constant;
+                }
+                continue;
+            }
+            // 展开同类的嵌套组合
+            if (compiled instanceof CompositeCondition composite && composite.getMode() == mode) {
+                flattened.addAll(composite.getChildren());
+            } else {
+                flattened.add(compiled);
+            }
+        }
+
+        if (mode == Mode.ALL) {
+            SpellCondition merged = mergeDistanceBounds(flattened);
+            if (merged == ConstantCondition.FALSE) {
+                return merged;
+            }
+        }
+
+        // 合并重复的子条件，包含随机条件的子树每次检查结果不同，不能合并
+        List<SpellCondition> unique = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        for (SpellCondition child : flattened) {
+            if (!isDeterministic(child) || keys.add(child.getKey())) {
+                unique.add(child);
+            }
+        }
+
+        if (unique.isEmpty()) {
+            return ConstantCondition.of(!absorbing);
+        }
+        if (unique.size() == 1) {
+            return unique.get(0);
+        }
+        // 组内按估计开销排序，便宜的先检查
+        unique.sort((a, b) -> Integer.compare(a.getCost(), b.getCost()));
+        return new CompositeCondition(mode, unique);
+    }
+
+    /**
+     * 编译取反条件
+     */
+    private static SpellCondition compileNot(List<SpellCondition> children) {
+        if (children.isEmpty()) {
+            return ConstantCondition.FALSE;
+        }
+        SpellCondition child = compile(children.get(0));
+        if (child instanceof ConstantCondition constant) {
+            return ConstantCondition.of(!constant.getValue());
+        }
+        // 双重取反
+        if (child instanceof CompositeCondition composite && composite.getMode() == Mode.NOT) {
+            return composite.getChildren().get(0);
+        }
+        return new CompositeCondition(Mode.NOT, List.of(child));
+    }
+
+    /**
+     * 把全部满足组中的目标距离上下界合并为一个区间条件，直接修改传入的列表
+     *
+     * @return 区间为空时返回 {@link ConstantCondition#FALSE}，否则返回null
+     */
+    private static SpellCondition mergeDistanceBounds(List<SpellCondition> conditions) {
+        double min = Double.NEGATIVE_INFINITY;
+        boolean minInclusive = true;
+        double max = Double.POSITIVE_INFINITY;
+        boolean maxInclusive = true;
+        int bounds = 0;
+        int firstIndex = -1;
+
+        for (int i = 0; i < conditions.size(); i++) {
+            if (!(conditions.get(i) instanceof TargetDistanceCondition distance) || distance.isInvert()) {
+                continue;
+            }
+            double value = distance.getNumericValue();
+            ComparisonOperator operator = distance.getOperator();
+            switch (operator) {
+                case GREATER_THAN, GREATER_THAN_OR_EQUALS -> {
+                    boolean inclusive = operator == ComparisonOperator.GREATER_THAN_OR_EQUALS;
+                    if (value > min || (value == min && !inclusive)) {
+                        min = value;
+                        minInclusive = inclusive;
+                    }
+                }
+                case LESS_THAN, LESS_THAN_OR_EQUALS -> {
+                    boolean inclusive = operator == ComparisonOperator.LESS_THAN_OR_EQUALS;
+                    if (value < max || (value == max && !inclusive)) {
+                        max = value;
+                        maxInclusive = inclusive;
+                    }
+                }
+                default -> {
+                    continue;
+                }
+            }
+            if (firstIndex < 0) {
+                firstIndex = i;
+            }
+            bounds++;
+        }
+
+        // 只有一个界时保留原条件
+        if (bounds < 2) {
+            return null;
+        }
+
+        // 区间为空，或上界小于0（距离不会为负）
+        if (min > max || (min == max && !(minInclusive && maxInclusive))
+                || max < 0 || (max == 0 && !maxInclusive)) {
+            return ConstantCondition.FALSE;
+        }
+
+        // 用区间条件替换第一个距离条件，删除其余的距离界
+        List<SpellCondition> merged = new ArrayList<>();
+        for (int i = 0; i < conditions.size(); i++) {
+            SpellCondition condition = conditions.get(i);
+            if (i == firstIndex) {
+                merged.add(new DistanceRangeCondition(min, minInclusive, max, maxInclusive));
+            } else if (!(condition instanceof TargetDistanceCondition distance) || distance.isInvert()
+                    || !isBound(distance.getOperator())) {
+                merged.add(condition);
+            }
+        }
+        conditions.clear();
+        conditions.addAll(merged);
+        return null;
+    }
+
+    /**
+     * 条件是否每次检查都得到相同的结果，组合条件只有在所有子条件都确定时才确定
+     */
+    private static boolean isDeterministic(SpellCondition condition) {
+        if (condition.getType() == ConditionType.RANDOM_CHANCE) {
+            return false;
+        }
+        if (condition instanceof CompositeCondition composite) {
+            for (SpellCondition child : composite.getChildren()) {
+                if (!isDeterministic(child)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否是可以合并为区间的比较操作符
+     */
+    private static boolean isBound(ComparisonOperator operator) {
+        return operator == ComparisonOperator.GREATER_THAN || operator == ComparisonOperator.GREATER_THAN_OR_EQUALS
+                || operator == ComparisonOperator.LESS_THAN || operator == ComparisonOperator.LESS_THAN_OR_EQUALS;
+    }
+
+    /**
+     * 折叠必然成立或必然不成立的随机几率条件（随机值在0到100之间）
+     */
+    private static SpellCondition foldRandomChance(BaseSpellCondition condition) {
+        double value = condition.getNumericValue();
+        Boolean folded = switch (condition.getOperator()) {
+            case LESS_THAN -> value >= 100 ? Boolean.TRUE : value <= 0 ? Boolean.FALSE : null;
+            case LESS_THAN_OR_EQUALS -> value >= 100 ? Boolean.TRUE : value < 0 ? Boolean.FALSE : null;
+            case GREATER_THAN -> value < 0 ? Boolean.TRUE : value >= 100 ? Boolean.FALSE : null;
+            case GREATER_THAN_OR_EQUALS -> value <= 0 ? Boolean.TRUE : value >= 100 ? Boolean.FALSE : null;
+            default -> null;
+        };
+        if (folded == null) {
+            return condition;
+        }
+        return ConstantCondition.of(condition.isInvert() != folded);
+    }
+}
@@ -0,0 +1,72 @@
+package com.spelledmobs.data;
+
+import net.minecraft.resources.ResourceLocation;
+import java.util.List;
+
+/**
+ * 单种实体的法术配置，在加载配置时编译生成，之后不再修改
+ * 施法者在自己的施法状态中缓存该对象的引用，热路径上不再查询注册表和配置表
+ */
+public final class EntitySpellProfile {
+    // 默认的目标搜索半径
+    public static final double DEFAULT_SEARCH_RADIUS = 16.0;
+
+    private final ResourceLocation entityId;
+    private final SpellEntry[] spells;
+    private final int checkInterval;
+    private final ActivationRange activationRange;
+    private final TargetSettings targetSettings;
+
+    /**
+     * 创建实体法术配置
+     *
+     * @param entityId        实体ID
+     * @param spells          法术列表
+     * @param checkInterval   检查间隔（刻）
+     * @param activationRange 激活范围
+     * @param targetSettings  目标选择设置
+     */
+    public EntitySpellProfile(ResourceLocation entityId, List<SpellEntry> spells, int checkInterval,
+            ActivationRange activationRange, TargetSettings targetSettings) {
+        this.entityId = entityId;
+        this.spells = spells.toArray(new SpellEntry[0]);
+        this.checkInterval = Math.max(1, checkInterval);
+        this.activationRange = activationRange;
+        this.targetSettings = targetSettings;
+    }
+
+    /**
+     * 获取实体ID
+     */
+    public ResourceLocation getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * 获取法术数组，调用者不应修改
+     */
+    public SpellEntry[] getSpells() {
+        return spells;
+    }
+
+    /**
+     * 获取检查间隔（刻）
+     */
+    public int getCheckInterval() {
+        return checkInterval;
+    }
+
+    /**
+     * 获取激活范围
+     */
+    public ActivationRange getActivationRange() {
+        return activationRange;
+    }
+
+    /**
+     * 获取目标选择设置
+     */
+    public TargetSettings getTargetSettings() {
+        return targetSettings;
+    }
+}
@@ -0,0 +1,81 @@
+package com.spelledmobs.data;
+
+import net.minecraft.world.level.Level;
+
+/**
+ * 世界环境快照，每个世界每tick最多记录一次
+ * 天气、时间、月相等只与世界有关的条件从这里读取，同一tick内所有施法者共用同一份结果
+ */
+public class LevelEnvironment {
+    public static final String WEATHER_CLEAR = "clear";
+    public static final String WEATHER_RAIN = "rain";
+    public static final String WEATHER_THUNDER = "thunder";
+
+    private long gameTime = Long.MIN_VALUE;
+    private long timeOfDay;
+    private String weather = WEATHER_CLEAR;
+    private int moonPhase;
+
+    /**
+     * 创建当前时刻的环境快照
+     *
+     * @param level 世界
+     * @return 环境快照
+     */
+    public static LevelEnvironment of(Level level) {
+        LevelEnvironment environment = new LevelEnvironment();
+        environment.update(level);
+        return environment;
+    }
+
+    /**
+     * 确保快照对应当前游戏刻，否则重新记录世界环境
+     *
+     * @param level 世界
+     */
+    public void update(Level level) {
+        long currentTime = level.getGameTime();
+        if (gameTime == currentTime) {
+            return;
+        }
+        gameTime = currentTime;
+
+        timeOfDay = level.getDayTime() % 24000L;
+        if (level.isThundering()) {
+            weather = WEATHER_THUNDER;
+        } else if (level.isRaining()) {
+            weather = WEATHER_RAIN;
+        } else {
+            weather = WEATHER_CLEAR;
+        }
+        moonPhase = level.getMoonPhase();
+    }
+
+    /**
+     * 获取快照对应的游戏刻
+     */
+    public long getGameTime() {
+        return gameTime;
+    }
+
+    /**
+     * 获取一天中的时间（0-24000）
+     */
+    public long getTimeOfDay() {
+        return timeOfDay;
+    }
+
+    /**
+     * 获取天气（"clear"、"rain"、"thunder"）
+     */
+    public String getWeather() {
+        return weather;
+    }
+
+    /**
+     * 获取月相（0-7，0为满月）
+     */
+    public int getMoonPhase() {
+        return moonPhase;
+    }
+}
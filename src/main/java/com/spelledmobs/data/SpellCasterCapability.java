@@ -0,0 +1,90 @@
+package com.spelledmobs.data;
+
+import com.spelledmobs.SpelledMobs;
+import net.minecraft.core.Direction;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraftforge.common.capabilities.Capability;
+import net.minecraftforge.common.capabilities.CapabilityManager;
+import net.minecraftforge.common.capabilities.CapabilityToken;
+import net.minecraftforge.common.capabilities.ICapabilityProvider;
+import net.minecraftforge.common.capabilities.RegisterCapabilitiesEvent;
+import net.minecraftforge.common.util.LazyOptional;
+import net.minecraftforge.event.AttachCapabilitiesEvent;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 施法状态能力，把 {@link SpellCasterState} 附加到生物上
+ * 状态在首次访问时才创建，实体移除时随能力一起失效
+ */
+public class SpellCasterCapability {
+    public static final Capability<SpellCasterState> SPELL_CASTER = CapabilityManager.get(new CapabilityToken<>() {
+    });
+    public static final ResourceLocation ID = new ResourceLocation(SpelledMobs.MOD_ID, "spell_caster");
+
+    // 已创建且尚未随实体释放的施法状态数量
+    private static final AtomicInteger LIVE_STATES = new AtomicInteger();
+
+    /**
+     * 注册能力类型，在模组总线上监听
+     */
+    public static void register(RegisterCapabilitiesEvent event) {
+        event.register(SpellCasterState.class);
+    }
+
+    /**
+     * 为生物附加施法状态，在Forge总线上监听
+     */
+    public static void attach(AttachCapabilitiesEvent<Entity> event) {
+        if (event.getObject() instanceof LivingEntity) {
+            Provider provider = new Provider();
+            event.addCapability(ID, provider);
+            event.addListener(provider::invalidate);
+        }
+    }
+
+    /**
+     * 获取实体的施法状态
+     *
+     * @param entity 实体
+     * @return 施法状态，实体没有该能力（如已移除）时返回null
+     */
+    public static SpellCasterState get(LivingEntity entity) {
+        return entity != null ? entity.getCapability(SPELL_CASTER).orElse(null) : null;
+    }
+
+    /**
+     * 获取当前存活的施法状态数量，用于统计和排查泄漏
+     */
+    public static int getLiveStateCount() {
+        return LIVE_STATES.get();
+    }
+
+    /**
+     * 施法状态能力提供者
+     */
+    private static class Provider implements ICapabilityProvider {
+        private final LazyOptional<SpellCasterState> state = LazyOptional.of(this::create);
+        private boolean created;
+
+        @Override
+        public <T> LazyOptional<T> getCapability(Capability<T> capability, Direction side) {
+            return SPELL_CASTER.orEmpty(capability, state);
+        }
+
+        private SpellCasterState create() {
+            created = true;
+            LIVE_STATES.incrementAndGet();
+            return new SpellCasterState();
+        }
+
+        private void invalidate() {
+            if (created) {
+                created = false;
+                LIVE_STATES.decrementAndGet();
+            }
+            state.invalidate();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.spelledmobs.data;
+
+import com.spelledmobs.SpelledMobs;
+import net.minecraft.world.entity.LivingEntity;
+import java.util.Arrays;
+
+/**
+ * 单个生物的施法状态，通过 {@link SpellCasterCapability} 附加在实体上
+ * 包含法术冷却、持续性法术的施法状态和上一次的法术目标，随实体一起释放
+ */
+public class SpellCasterState {
+    // 冷却结束时间（游戏刻），按法术编号索引
+    private long[] cooldownEnds = new long[0];
+
+    // 当前持续性法术的施法状态
+    private String castingSpellId;
+    private long castingEndTick; // 施法结束的游戏刻
+    private boolean casting;
+
+    // 缓存的实体法术配置及其版本
+    private EntitySpellProfile profile;
+    private int profileGeneration;
+
+    // 上一次的法术目标及其完整搜索得到的游戏刻
+    private LivingEntity lastTarget;
+    private long lastTargetSearchTick;
+
+    /**
+     * 获取法术的冷却结束时间
+     *
+     * @param spellIndex 法术编号
+     * @return 冷却结束的游戏刻，没有冷却时返回0
+     */
+    public long getCooldownEnd(int spellIndex) {
+        return spellIndex < cooldownEnds.length ? cooldownEnds[spellIndex] : 0L;
+    }
+
+    /**
+     * 设置法术的冷却结束时间
+     *
+     * @param spellIndex  法术编号
+     * @param cooldownEnd 冷却结束的游戏刻
+     */
+    public void setCooldownEnd(int spellIndex, long cooldownEnd) {
+        if (spellIndex >= cooldownEnds.length) {
+            cooldownEnds = Arrays.copyOf(cooldownEnds, Math.max(SpellIds.size(), spellIndex + 1));
+        }
+        cooldownEnds[spellIndex] = cooldownEnd;
+    }
+
+    /**
+     * 清除所有冷却
+     */
+    public void clearCooldowns() {
+        Arrays.fill(cooldownEnds, 0L);
+    }
+
+    /**
+     * 开始持续性法术的施法状态
+     *
+     * @param spellId  法术ID
+     * @param duration 持续时间（刻）
+     * @param gameTime 当前游戏刻
+     */
+    public void startCasting(String spellId, int duration, long gameTime) {
+        int castingDuration = duration > 0 ? duration : 60; // 默认至少3秒
+        this.castingSpellId = spellId;
+        this.castingEndTick = gameTime + castingDuration;
+        this.casting = true;
+
+        SpelledMobs.LOGGER.debug("[SpelledMobs] 创建施法状态 - 法术: {}, 持续时间: {} 刻, 开始时间: {}",
+            spellId, castingDuration, gameTime);
+    }
+
+    /**
+     * 手动停止施法
+     */
+    public void stopCasting() {
+        this.casting = false;
+        SpelledMobs.LOGGER.debug("[SpelledMobs] 法术 {} 被手动停止", castingSpellId);
+    }
+
+    /**
+     * 是否有施法状态（包括已结束但尚未清理的）
+     */
+    public boolean hasCastingState() {
+        return castingSpellId != null;
+    }
+
+    /**
+     * 当前施法是否已经结束
+     * 按游戏刻计算，服务器卡顿或暂停时持续时间与游戏内保持一致
+     *
+     * @param gameTime 当前游戏刻
+     */
+    public boolean isCastingFinished(long gameTime) {
+        // 如果手动停止施法，或已到达结束刻
+        boolean finished = !casting || gameTime >= castingEndTick;
+
+        if (finished && casting) {
+            SpelledMobs.LOGGER.debug("[SpelledMobs] 法术 {} 已结束 - 结束刻: {}, 当前刻: {}",
+                castingSpellId, castingEndTick, gameTime);
+        }
+
+        return finished;
+    }
+
+    /**
+     * 清除施法状态
+     *
+     * @return 被清除的法术ID，没有施法状态时返回null
+     */
+    public String clearCasting() {
+        String spellId = castingSpellId;
+        castingSpellId = null;
+        casting = false;
+        return spellId;
+    }
+
+    /**
+     * 获取当前施放的法术ID
+     */
+    public String getCastingSpellId() {
+        return castingSpellId;
+    }
+
+    /**
+     * 获取缓存的实体法术配置
+     */
+    public EntitySpellProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * 获取缓存的实体法术配置的版本
+     */
+    public int getProfileGeneration() {
+        return profileGeneration;
+    }
+
+    /**
+     * 缓存实体法术配置
+     *
+     * @param profile    法术配置，没有配置时为null
+     * @param generation 配置版本
+     */
+    public void cacheProfile(EntitySpellProfile profile, int generation) {
+        this.profile = profile;
+        this.profileGeneration = generation;
+    }
+
+    /**
+     * 获取上一次的法术目标，可能已经死亡或被移除，使用前需要重新验证
+     */
+    public LivingEntity getLastTarget() {
+        return lastTarget;
+    }
+
+    /**
+     * 获取上一次完整搜索目标的游戏刻
+     */
+    public long getLastTargetSearchTick() {
+        return lastTargetSearchTick;
+    }
+
+    /**
+     * 记录完整搜索得到的法术目标
+     *
+     * @param target   目标，没有找到时为null
+     * @param gameTime 搜索时的游戏刻
+     */
+    public void setLastTarget(LivingEntity target, long gameTime) {
+        this.lastTarget = target;
+        this.lastTargetSearchTick = gameTime;
+    }
+
+    /**
+     * 清除上一次的法术目标
+     */
+    public void clearLastTarget() {
+        this.lastTarget = null;
+    }
+}
@@ -4,6 +4,9 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.spelledmobs.SpelledMobs;
+import com.spelledmobs.util.SpellRandom;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.LivingEntity;
@@ -11,10 +14,11 @@ import net.minecraft.world.entity.Mob;
 import net.minecraft.world.level.Level;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -24,91 +28,32 @@ import com.google.gson.JsonArray;
 import net.minecraftforge.fml.loading.FMLPaths;
 import java.nio.file.Path;
 import java.nio.file.Files;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 管理实体的法术施放数据
  */
 public class SpellCastingData {
-    private static final Random RANDOM = new Random();
-
+    // 加载过程中读取的原始配置，加载完成后编译为 entityProfiles
     // 存储每种实体的法术配置
     private final Map<ResourceLocation, List<SpellEntry>> entitySpells = new HashMap<>();
     // 存储每种实体的检查间隔
     private final Map<ResourceLocation, Integer> entityCheckIntervals = new HashMap<>();
-    
-    // 存储实体当前施法状态
-    private final Map<UUID, SpellCastingState> entityCastingStates = new ConcurrentHashMap<>();
-
-    /**
-     * 实体施法状态类
-     */
-    private static class SpellCastingState {
-        private final String spellId;
-        private final int level;
-        private final long startTime;
-        private final int duration;  // 持续时间(刻)
-        private boolean isCasting;
-
-        public SpellCastingState(String spellId, int level, int duration) {
-            this.spellId = spellId;
-            this.level = level;
-            this.startTime = System.currentTimeMillis();
-            this.duration = duration > 0 ? duration : 60; // 默认至少3秒
-            this.isCasting = true;
-            
-            SpelledMobs.LOGGER.debug("[SpelledMobs] 创建施法状态 - 法术: {}, 持续时间: {} 刻, 开始时间: {}", 
-                spellId, this.duration, this.startTime);
-        }
-
-        public boolean isFinished() {
-            // 如果手动停止施法
-            if (!isCasting) {
-                return true;
-            }
-            
-            // 计算已经经过的时间（毫秒）
-            long currentTime = System.currentTimeMillis();
-            long elapsed = currentTime - startTime;
-            
-            // 将持续时间从刻转换为毫秒 (1刻 = 50毫秒)
-            long durationMillis = duration * 50L;
-            
-            // 判断是否超过持续时间
-            boolean finished = elapsed >= durationMillis;
-            
-            if (finished) {
-                SpelledMobs.LOGGER.debug("[SpelledMobs] 法术 {} 已结束 - 持续时间: {} 毫秒, 实际持续: {} 毫秒", 
-                    spellId, durationMillis, elapsed);
-            }
-            
-            return finished;
-        }
+    // 存储每种实体的激活范围
+    private final Map<ResourceLocation, ActivationRange> entityActivationRanges = new HashMap<>();
+    // 存储每种实体的目标选择设置
+    private final Map<ResourceLocation, TargetSettings> entityTargetSettings = new HashMap<>();
 
-        public void stopCasting() {
-            this.isCasting = false;
-            SpelledMobs.LOGGER.debug("[SpelledMobs] 法术 {} 被手动停止", spellId);
-        }
+    // 编译后的实体法术配置，按实体类型索引，每次加载后整体替换
+    private volatile Map<EntityType<?>, EntitySpellProfile> entityProfiles = Collections.emptyMap();
+    // 配置版本，每次编译后递增，施法者据此判断缓存的配置是否过期
+    private volatile int profileGeneration;
 
-        public String getSpellId() {
-            return spellId;
-        }
+    // 每个世界的环境快照上下文，供世界条件使用
+    private final Map<ResourceKey<Level>, SpellConditionContext> worldContexts = new HashMap<>();
 
-        public int getLevel() {
-            return level;
-        }
-        
-        public long getRemainingTime() {
-            if (!isCasting) {
-                return 0;
-            }
-            
-            long elapsed = System.currentTimeMillis() - startTime;
-            long durationMillis = duration * 50L;
-            return Math.max(0, durationMillis - elapsed);
-        }
-    }
+    // 选择法术时复用的条件上下文和加权采样器，法术选择只在服务器线程进行
+    private final SpellConditionContext context = new SpellConditionContext(null, null, null, null);
+    private final WeightedSpellSampler sampler = new WeightedSpellSampler();
 
     /**
      * 加载所有实体法术配置
@@ -119,6 +64,8 @@ public class SpellCastingData {
         // 清空现有配置
         entitySpells.clear();
         entityCheckIntervals.clear();
+        entityActivationRanges.clear();
+        entityTargetSettings.clear();
 
         SpelledMobs.LOGGER.info("[SpelledMobs] 开始加载实体法术配置...");
 
@@ -167,6 +114,36 @@ public class SpellCastingData {
             // 出错时添加默认测试配置
             addDefaultTestSpells();
         }
+
+        compileProfiles();
+    }
+
+    /**
+     * 把原始配置编译为不可变的实体法术配置，并整体替换当前配置
+     */
+    private void compileProfiles() {
+        Map<EntityType<?>, EntitySpellProfile> profiles = new IdentityHashMap<>();
+        for (Map.Entry<ResourceLocation, List<SpellEntry>> entry : entitySpells.entrySet()) {
+            ResourceLocation entityKey = entry.getKey();
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+
+            EntityType<?> entityType = BuiltInRegistries.ENTITY_TYPE.getOptional(entityKey).orElse(null);
+            if (entityType == null) {
+                SpelledMobs.LOGGER.warn("[SpelledMobs] 未知的实体类型 {}，已忽略其法术配置", entityKey);
+                continue;
+            }
+
+            ActivationRange activationRange = entityActivationRanges.get(entityKey);
+            profiles.put(entityType, new EntitySpellProfile(entityKey, entry.getValue(),
+                    entityCheckIntervals.getOrDefault(entityKey, 20),
+                    activationRange != null ? activationRange : ActivationRange.defaults(),
+                    entityTargetSettings.getOrDefault(entityKey, TargetSettings.defaults())));
+        }
+
+        entityProfiles = Collections.unmodifiableMap(profiles);
+        profileGeneration++;
     }
 
     /**
@@ -295,6 +272,18 @@ public class SpellCastingData {
         // 存储检查间隔
         entityCheckIntervals.put(entityKey, Math.max(1, checkInterval));
 
+        // 解析激活范围（可选，默认使用全局配置）
+        if (jsonObject.has("activationRange") && jsonObject.get("activationRange").isJsonObject()) {
+            entityActivationRanges.put(entityKey,
+                    ActivationRange.fromJson(jsonObject.get("activationRange").getAsJsonObject()));
+        }
+
+        // 解析目标选择设置（可选，默认玩家优先、搜索半径16格）
+        if (jsonObject.has("settings") && jsonObject.get("settings").isJsonObject()) {
+            entityTargetSettings.put(entityKey,
+                    TargetSettings.fromJson(jsonObject.get("settings").getAsJsonObject()));
+        }
+
         // 解析法术列表
         if (jsonObject.has("spells") && jsonObject.get("spells").isJsonArray()) {
             List<SpellEntry> spells = new ArrayList<>();
@@ -379,16 +368,22 @@ public class SpellCastingData {
             // 解析施法条件（可选）
             if (spellObject.has("conditions") && spellObject.get("conditions").isJsonArray()) {
                 JsonArray conditionsArray = spellObject.get("conditions").getAsJsonArray();
+                List<SpellCondition> conditions = new ArrayList<>();
 
                 for (JsonElement conditionElement : conditionsArray) {
                     if (conditionElement.isJsonObject()) {
                         JsonObject conditionObject = conditionElement.getAsJsonObject();
                         SpellCondition condition = SpellConditionFactory.fromJson(conditionObject);
                         if (condition != null) {
-                            spellEntry.addCondition(condition);
+                            conditions.add(condition);
                         }
                     }
                 }
+
+                // 化简条件树后再添加到法术条目
+                for (SpellCondition condition : ConditionCompiler.compileAll(conditions)) {
+                    spellEntry.addCondition(condition);
+                }
             }
 
             return spellEntry;
@@ -412,10 +407,57 @@ public class SpellCastingData {
         // 预设一些测试用的法术配置，方便测试
         if (entitySpells.isEmpty()) {
             addDefaultTestSpells();
+            compileProfiles();
         }
 
-        ResourceLocation entityKey = EntityType.getKey(entity.getType());
-        return entitySpells.containsKey(entityKey) && !entitySpells.get(entityKey).isEmpty();
+        return entityProfiles.containsKey(entity.getType());
+    }
+
+    /**
+     * 获取所有法术条件的检查统计，用于查看条件的检查顺序
+     *
+     * @return 统计信息，每个有条件的法术一段
+     */
+    public List<String> getConditionStatistics() {
+        List<String> lines = new ArrayList<>();
+        for (EntitySpellProfile profile : entityProfiles.values()) {
+            for (SpellEntry spell : profile.getSpells()) {
+                List<String> conditionLines = spell.getConditionStatistics();
+                if (conditionLines.isEmpty()) {
+                    continue;
+                }
+                lines.add(String.format("%s - %s:", profile.getEntityId(), spell.getSpellId()));
+                for (String line : conditionLines) {
+                    lines.add("  " + line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 获取实体类型的法术配置
+     *
+     * @param entity 实体
+     * @return 法术配置，没有配置时返回null
+     */
+    public EntitySpellProfile getProfile(LivingEntity entity) {
+        return entity != null ? entityProfiles.get(entity.getType()) : null;
+    }
+
+    /**
+     * 获取施法者缓存的法术配置，配置重载后自动刷新缓存
+     *
+     * @param entity 施法实体
+     * @param state  施法者的施法状态
+     * @return 法术配置，没有配置时返回null
+     */
+    public EntitySpellProfile getProfile(LivingEntity entity, SpellCasterState state) {
+        int generation = profileGeneration;
+        if (state.getProfileGeneration() != generation) {
+            state.cacheProfile(entityProfiles.get(entity.getType()), generation);
+        }
+        return state.getProfile();
     }
 
     /**
@@ -485,6 +527,7 @@ public class SpellCastingData {
     public void addSpellForEntity(String entityId, String spellId, int minLevel, int maxLevel,
             int minCastTime, int maxCastTime) {
         addTestSpellsForEntity(entityId, spellId, minLevel, maxLevel, minCastTime, maxCastTime);
+        compileProfiles();
     }
 
     /**
@@ -506,9 +549,11 @@ public class SpellCastingData {
             return;
         }
         
-        UUID entityId = entity.getUUID();
-        SpellCastingState state = new SpellCastingState(spellId, level, duration);
-        entityCastingStates.put(entityId, state);
+        SpellCasterState state = SpellCasterCapability.get(entity);
+        if (state == null) {
+            return;
+        }
+        state.startCasting(spellId, duration, entity.level().getGameTime());
         
         SpelledMobs.LOGGER.info("[SpelledMobs] 实体 {} 开始施放法术 {}, 等级 {}, 持续时间 {} 刻", 
                 entity.getName().getString(), spellId, level, duration);
@@ -519,16 +564,11 @@ public class SpellCastingData {
      * @param entity 施法实体
      */
     public void stopCasting(LivingEntity entity) {
-        if (entity == null) {
-            return;
-        }
-        
-        UUID entityId = entity.getUUID();
-        SpellCastingState state = entityCastingStates.get(entityId);
-        if (state != null) {
+        SpellCasterState state = SpellCasterCapability.get(entity);
+        if (state != null && state.hasCastingState()) {
             state.stopCasting();
             SpelledMobs.LOGGER.debug("[SpelledMobs] 实体 {} 停止施放法术 {}", 
-                    entity.getName().getString(), state.getSpellId());
+                    entity.getName().getString(), state.getCastingSpellId());
         }
     }
 
@@ -538,21 +578,16 @@ public class SpellCastingData {
      * @return 是否正在施放法术
      */
     public boolean isCasting(LivingEntity entity) {
-        if (entity == null) {
-            return false;
-        }
-        
-        UUID entityId = entity.getUUID();
-        SpellCastingState state = entityCastingStates.get(entityId);
-        if (state == null) {
+        SpellCasterState state = SpellCasterCapability.get(entity);
+        if (state == null || !state.hasCastingState()) {
             return false;
         }
         
         // 检查法术是否已经结束
-        if (state.isFinished()) {
-            entityCastingStates.remove(entityId);
+        if (state.isCastingFinished(entity.level().getGameTime())) {
+            String spellId = state.clearCasting();
             SpelledMobs.LOGGER.debug("[SpelledMobs] 实体 {} 的法术 {} 已结束", 
-                    entity.getName().getString(), state.getSpellId());
+                    entity.getName().getString(), spellId);
             return false;
         }
         
@@ -565,13 +600,8 @@ public class SpellCastingData {
      * @return 法术ID，如果没有则返回null
      */
     public String getCurrentSpellId(LivingEntity entity) {
-        if (entity == null) {
-            return null;
-        }
-        
-        UUID entityId = entity.getUUID();
-        SpellCastingState state = entityCastingStates.get(entityId);
-        return state != null ? state.getSpellId() : null;
+        SpellCasterState state = SpellCasterCapability.get(entity);
+        return state != null ? state.getCastingSpellId() : null;
     }
 
     /**
@@ -579,27 +609,28 @@ public class SpellCastingData {
      * @param entity 施法实体
      */
     public void cleanupEntityState(LivingEntity entity) {
-        if (entity == null) {
+        SpellCasterState state = SpellCasterCapability.get(entity);
+        if (state == null) {
             return;
         }
         
-        UUID entityId = entity.getUUID();
-        SpellCastingState oldState = entityCastingStates.remove(entityId);
-        
-        if (oldState != null) {
+        state.clearLastTarget();
+        String oldSpellId = state.clearCasting();
+        if (oldSpellId != null) {
             SpelledMobs.LOGGER.debug("[SpelledMobs] 清理实体 {} 的施法状态: {}", 
-                entity.getName().getString(), oldState.getSpellId());
+                entity.getName().getString(), oldSpellId);
         }
     }
 
     /**
-     * 获取下一个要施放的法术
+     * 按给定的法术配置立即为实体选择要施放的法术
      * 
-     * @param entity 施法实体
+     * @param entity  施法实体
+     * @param profile 实体的法术配置
      * @return 要施放的法术条目，如果无法施放则返回null
      */
-    public SpellEntry getNextSpellToCast(LivingEntity entity) {
-        if (!hasSpells(entity)) {
+    public SpellEntry selectSpellToCast(LivingEntity entity, EntitySpellProfile profile) {
+        if (profile == null) {
             return null;
         }
         
@@ -608,82 +639,76 @@ public class SpellCastingData {
             return null;
         }
 
-        ResourceLocation entityKey = EntityType.getKey(entity.getType());
-        List<SpellEntry> spells = entitySpells.get(entityKey);
-
-        // 获取实体检查间隔
-        int checkInterval = entityCheckIntervals.getOrDefault(entityKey, 20);
-
-        // 只在特定tick检查，减少性能开销
-        if (entity.tickCount % checkInterval != 0) {
-            return null;
-        }
-
-        // 获取实体的目标
-        LivingEntity target = entity.getLastHurtByMob();
-        if (target == null || !target.isAlive()) {
-            // 如果没有上次攻击者或已死亡，尝试获取当前目标
-            if (entity instanceof Mob mobEntity) {
-                target = mobEntity.getTarget();
+        // 先按世界条件剪枝，所有法术都被世界条件排除时不做任何与实体相关的检查
+        Level level = entity.level();
+        SpellConditionContext worldContext = getWorldContext(level);
+        boolean anyWorldPassed = false;
+        for (SpellEntry spell : profile.getSpells()) {
+            if (spell.checkWorldConditions(worldContext)) {
+                anyWorldPassed = true;
+                break;
             }
         }
-
-        // 如果没有目标，则不施法
-        if (target == null || !target.isAlive()) {
+        if (!anyWorldPassed) {
             return null;
         }
 
-        // 创建条件上下文
-        Level level = entity.level();
-        SpellConditionContext context = new SpellConditionContext(entity, target, level);
-
-        // 首先过滤出满足条件的法术
-        List<SpellEntry> eligibleSpells = new ArrayList<>();
-        for (SpellEntry spell : spells) {
-            // 只检查法术条件是否满足，不进行几率检查
-            boolean conditionsMet = spell.checkConditions(context);
-            if (conditionsMet) {
-                eligibleSpells.add(spell);
-            }
-        }
-
-        if (eligibleSpells.isEmpty()) {
+        // 如果没有目标，则不施法
+        LivingEntity target = getSpellTarget(entity);
+        if (target == null) {
             return null;
         }
 
+        // 复用同一个条件上下文，与世界条件共用同一份环境快照
+        context.reset(entity, target, level, worldContext.getEnvironment());
+
         // 使用轮盘赌选择算法，考虑权重和几率
-        List<SpellEntry> weightedSpells = new ArrayList<>();
-        for (SpellEntry spell : eligibleSpells) {
-            // 将法术按权重和几率添加到加权列表中
-            // 例如，权重为2、几率为0.5的法术会有50%的几率被添加两次
-            if (RANDOM.nextFloat() <= spell.getChance()) {
-                for (int i = 0; i < spell.getWeight(); i++) {
-                    weightedSpells.add(spell);
-                }
+        // 满足条件的法术先按几率判定是否参与抽取，参与的法术按权重占比被抽中
+        // 例如，权重为2、几率为0.5的法术有50%的几率以权重2参与抽取
+        SpellRandom random = SpellRandom.current();
+        sampler.reset();
+        for (SpellEntry spell : profile.getSpells()) {
+            // 先检查法术条件，满足后再进行几率检查
+            if (spell.checkConditions(context) && random.nextFloat() <= spell.getChance()) {
+                sampler.add(spell);
             }
         }
+        context.release();
 
-        if (weightedSpells.isEmpty()) {
-            return null;
-        }
+        return sampler.sample(random);
+    }
 
-        // 从加权列表中随机选择一个法术
-        return weightedSpells.get(RANDOM.nextInt(weightedSpells.size()));
+    /**
+     * 获取世界的环境快照上下文，并确保快照对应当前游戏刻
+     *
+     * @param level 世界
+     * @return 只包含世界和环境快照的条件上下文
+     */
+    private SpellConditionContext getWorldContext(Level level) {
+        SpellConditionContext worldContext = worldContexts.get(level.dimension());
+        if (worldContext == null || worldContext.getLevel() != level) {
+            worldContext = new SpellConditionContext(null, null, level, new LevelEnvironment());
+            worldContexts.put(level.dimension(), worldContext);
+        }
+        worldContext.getEnvironment().update(level);
+        return worldContext;
     }
 
     /**
-     * 获取实体的所有法术
+     * 获取实体当前的交战目标，优先使用上次攻击者，其次是当前目标
      * 
-     * @param entity 实体
-     * @return 法术列表，如果没有则返回空列表
+     * @param entity 施法实体
+     * @return 存活的目标，没有则返回null
      */
-    public List<SpellEntry> getEntitySpells(LivingEntity entity) {
-        if (entity == null) {
-            return new ArrayList<>();
+    public LivingEntity getSpellTarget(LivingEntity entity) {
+        LivingEntity target = entity.getLastHurtByMob();
+        if (target == null || !target.isAlive()) {
+            // 如果没有上次攻击者或已死亡，尝试获取当前目标
+            if (entity instanceof Mob mobEntity) {
+                target = mobEntity.getTarget();
+            }
         }
-
-        ResourceLocation entityKey = EntityType.getKey(entity.getType());
-        return entitySpells.getOrDefault(entityKey, new ArrayList<>());
+        return target != null && target.isAlive() ? target : null;
     }
 
     /**
@@ -693,11 +718,7 @@ public class SpellCastingData {
      * @return 检查间隔（刻）
      */
     public int getEntityCheckInterval(LivingEntity entity) {
-        if (entity == null) {
-            return 20;
-        }
-
-        ResourceLocation entityKey = EntityType.getKey(entity.getType());
-        return entityCheckIntervals.getOrDefault(entityKey, 20);
+        EntitySpellProfile profile = getProfile(entity);
+        return profile != null ? profile.getCheckInterval() : 20;
     }
 }
\ No newline at end of file
@@ -28,42 +28,77 @@ public interface SpellCondition {
      * @return 比较操作符
      */
     ComparisonOperator getOperator();
+
+    /**
+     * 获取条件的估计开销，数值越小越先检查
+     * 
+     * @return 相对开销
+     */
+    default int getCost() {
+        return getType().getCost();
+    }
+
+    /**
+     * 是否只与世界有关（天气、时间等）
+     * 这类条件每个世界每tick只检查一次，只读取 {@link SpellConditionContext#getEnvironment()}
+     * 
+     * @return 是否是世界条件
+     */
+    default boolean isWorldScoped() {
+        return false;
+    }
+
+    /**
+     * 获取条件的结构键，键相同的两个条件检查结果相同，编译时用于合并重复条件
+     * 
+     * @return 结构键
+     */
+    default String getKey() {
+        return getType().getId() + "@" + System.identityHashCode(this);
+    }
     
     /**
-     * 条件类型枚举
+     * 条件类型枚举，附带每种条件的估计开销
      */
     enum ConditionType {
         // 基础条件
-        HEALTH_PERCENTAGE("HEALTH_PERCENTAGE"),
-        HEALTH_ABSOLUTE("HEALTH_ABSOLUTE"),
-        TARGET_DISTANCE("TARGET_DISTANCE"),
-        TARGET_HEALTH("TARGET_HEALTH"),
-        TARGET_TYPE("TARGET_TYPE"),
-        ENTITY_NAME("ENTITY_NAME"),
-        HELD_ITEM("HELD_ITEM"),
+        HEALTH_PERCENTAGE("HEALTH_PERCENTAGE", 2),
+        HEALTH_ABSOLUTE("HEALTH_ABSOLUTE", 2),
+        TARGET_DISTANCE("TARGET_DISTANCE", 4),
+        TARGET_HEALTH("TARGET_HEALTH", 2),
+        TARGET_TYPE("TARGET_TYPE", 3),
+        ENTITY_NAME("ENTITY_NAME", 3),
+        HELD_ITEM("HELD_ITEM", 3),
         
         // 环境条件
-        TIME_OF_DAY("TIME_OF_DAY"),
-        WEATHER("WEATHER"),
-        MOON_PHASE("MOON_PHASE"),
-        BIOME("BIOME"),
-        LIGHT_LEVEL("LIGHT_LEVEL"),
-        HEIGHT("HEIGHT"),
+        TIME_OF_DAY("TIME_OF_DAY", 1),
+        WEATHER("WEATHER", 1),
+        MOON_PHASE("MOON_PHASE", 1),
+        BIOME("BIOME", 5),
+        LIGHT_LEVEL("LIGHT_LEVEL", 5),
+        HEIGHT("HEIGHT", 2),
         
         // 状态条件
-        IS_IN_WATER("IS_IN_WATER"),
-        IS_ON_FIRE("IS_ON_FIRE"),
-        IS_SNEAKING("IS_SNEAKING"),
-        IS_SPRINTING("IS_SPRINTING"),
-        STATUS_EFFECT("STATUS_EFFECT"),
-        ARMOR_VALUE("ARMOR_VALUE"),
-        LAST_DAMAGE_SOURCE("LAST_DAMAGE_SOURCE"),
+        IS_IN_WATER("IS_IN_WATER", 2),
+        IS_ON_FIRE("IS_ON_FIRE", 2),
+        IS_SNEAKING("IS_SNEAKING", 2),
+        IS_SPRINTING("IS_SPRINTING", 2),
+        STATUS_EFFECT("STATUS_EFFECT", 3),
+        ARMOR_VALUE("ARMOR_VALUE", 3),
+        LAST_DAMAGE_SOURCE("LAST_DAMAGE_SOURCE", 3),
         
         // 高级条件
-        TARGET_COUNT("TARGET_COUNT"),
-        RANDOM_CHANCE("RANDOM_CHANCE");
+        TARGET_COUNT("TARGET_COUNT", 10),
+        RANDOM_CHANCE("RANDOM_CHANCE", 1),
+
+        // 条件组合，开销由子条件决定
+        ALL("ALL", 0),
+        ANY("ANY", 0),
+        NOT("NOT", 0),
+        CONSTANT("CONSTANT", 0);
         
         private final String id;
+        private final int cost;
         private static final Map<String, ConditionType> BY_ID = new HashMap<>();
         
         static {
@@ -72,13 +107,21 @@ public interface SpellCondition {
             }
         }
         
-        ConditionType(String id) {
+        ConditionType(String id, int cost) {
             this.id = id;
+            this.cost = cost;
         }
         
         public String getId() {
             return id;
         }
+
+        /**
+         * 获取该类型条件的估计开销
+         */
+        public int getCost() {
+            return cost;
+        }
         
         public static ConditionType byId(String id) {
             return BY_ID.getOrDefault(id, RANDOM_CHANCE);
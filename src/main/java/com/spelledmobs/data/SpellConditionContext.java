@@ -1,27 +1,78 @@
 package com.spelledmobs.data;
 
+import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.level.Level;
 
 /**
  * 法术条件上下文，包含条件检查所需的信息
+ * 距离、血量百分比等派生值在第一次使用时计算并缓存，同一次选择中的多个条件共用
+ * 热路径通过 {@link #reset} 复用同一个实例，不为每次选择分配新对象
  */
 public class SpellConditionContext {
-    private final LivingEntity caster;
-    private final LivingEntity target;
-    private final Level level;
+
+    private LivingEntity caster;
+    private LivingEntity target;
+    private Level level;
+    private LevelEnvironment environment;
+
+    // 延迟计算的派生值，NaN 或 null 表示尚未计算
+    private double distanceSqr = Double.NaN;
+    private double healthPercentage = Double.NaN;
+    private String targetTypeId;
 
     /**
-     * 创建条件上下文
+     * 创建条件上下文，使用当前时刻的环境快照
      *
      * @param caster 施法者
      * @param target 目标
      * @param level  世界
      */
     public SpellConditionContext(LivingEntity caster, LivingEntity target, Level level) {
+        this(caster, target, level, level != null ? LevelEnvironment.of(level) : null);
+    }
+
+    /**
+     * 创建条件上下文
+     *
+     * @param caster      施法者
+     * @param target      目标
+     * @param level       世界
+     * @param environment 世界环境快照
+     */
+    public SpellConditionContext(LivingEntity caster, LivingEntity target, Level level,
+            LevelEnvironment environment) {
+        set(caster, target, level, environment);
+    }
+
+    /**
+     * 把复用的条件上下文设置为新的施法者和目标，清除上一次缓存的派生值
+     * 使用完毕后应调用 {@link #release()}
+     *
+     * @param caster      施法者
+     * @param target      目标
+     * @param level       世界
+     * @param environment 世界环境快照
+     */
+    public void reset(LivingEntity caster, LivingEntity target, Level level, LevelEnvironment environment) {
+        set(caster, target, level, environment);
+    }
+
+    /**
+     * 清除对实体和世界的引用，避免复用的实例持有已移除的实体
+     */
+    public void release() {
+        set(null, null, null, null);
+    }
+
+    private void set(LivingEntity caster, LivingEntity target, Level level, LevelEnvironment environment) {
         this.caster = caster;
         this.target = target;
         this.level = level;
+        this.environment = environment;
+        this.distanceSqr = Double.NaN;
+        this.healthPercentage = Double.NaN;
+        this.targetTypeId = null;
     }
 
     /**
@@ -44,4 +95,44 @@ public class SpellConditionContext {
     public Level getLevel() {
         return level;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 获取世界环境快照
+     */
+    public LevelEnvironment getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * 获取施法者与目标距离的平方，没有施法者或目标时返回NaN
+     */
+    public double getDistanceSqr() {
+        if (Double.isNaN(distanceSqr) && caster != null && target != null) {
+            distanceSqr = caster.distanceToSqr(target);
+        }
+        return distanceSqr;
+    }
+
+    /**
+     * 获取施法者的生命值百分比（0-100），没有施法者或最大生命值无效时返回NaN
+     */
+    public double getHealthPercentage() {
+        if (Double.isNaN(healthPercentage) && caster != null) {
+            float maxHealth = caster.getMaxHealth();
+            if (maxHealth > 0) {
+                healthPercentage = (caster.getHealth() / maxHealth) * 100.0f;
+            }
+        }
+        return healthPercentage;
+    }
+
+    /**
+     * 获取目标的实体类型ID，例如 "minecraft:player"，没有目标时返回null
+     */
+    public String getTargetTypeId() {
+        if (targetTypeId == null && target != null) {
+            targetTypeId = EntityType.getKey(target.getType()).toString();
+        }
+        return targetTypeId;
+    }
+}
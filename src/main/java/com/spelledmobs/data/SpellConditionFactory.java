@@ -1,10 +1,14 @@
 package com.spelledmobs.data;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.spelledmobs.SpelledMobs;
 import com.spelledmobs.data.SpellCondition.ComparisonOperator;
 import com.spelledmobs.data.SpellCondition.ConditionType;
 import com.spelledmobs.data.conditions.*;
+import com.spelledmobs.data.conditions.CompositeCondition.Mode;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 法术条件工厂，用于创建不同类型的条件
@@ -31,7 +35,9 @@ public class SpellConditionFactory {
                 case TARGET_TYPE -> new TargetTypeCondition(operator, stringValue, invert, extraData);
                 case WEATHER -> new WeatherCondition(operator, stringValue, invert, extraData);
                 case TIME_OF_DAY -> new TimeOfDayCondition(operator, numericValue, invert, extraData);
+                case MOON_PHASE -> new MoonPhaseCondition(operator, numericValue, invert, extraData);
                 case RANDOM_CHANCE -> new RandomChanceCondition(operator, numericValue, invert, extraData);
+                case TARGET_COUNT -> new TargetCountCondition(operator, numericValue, invert, extraData);
                 default -> {
                     SpelledMobs.LOGGER.warn("[SpelledMobs] 不支持的条件类型: {}", type);
                     yield null;
@@ -51,6 +57,20 @@ public class SpellConditionFactory {
      */
     public static SpellCondition fromJson(JsonObject jsonObject) {
         try {
+            // 条件组合：{"all": [...]}、{"any": [...]}、{"not": {...}}
+            if (jsonObject.has("all")) {
+                return groupFromJson(Mode.ALL, jsonObject.get("all"));
+            }
+            if (jsonObject.has("any")) {
+                return groupFromJson(Mode.ANY, jsonObject.get("any"));
+            }
+            if (jsonObject.has("not")) {
+                SpellCondition child = jsonObject.get("not").isJsonArray()
+                        ? groupFromJson(Mode.ALL, jsonObject.get("not"))
+                        : fromJson(jsonObject.get("not").getAsJsonObject());
+                return child != null ? new CompositeCondition(Mode.NOT, List.of(child)) : null;
+            }
+
             // 条件类型（必须）
             if (!jsonObject.has("type")) {
                 SpelledMobs.LOGGER.error("[SpelledMobs] 条件缺少type字段");
@@ -97,4 +117,29 @@ public class SpellConditionFactory {
             return null;
         }
     }
+
+    /**
+     * 从JSON数组创建条件组合，无法解析的子条件会被忽略
+     * 
+     * @param mode    组合方式
+     * @param element 子条件JSON数组
+     * @return 条件组合，如果不是数组则返回null
+     */
+    private static SpellCondition groupFromJson(Mode mode, JsonElement element) {
+        if (!element.isJsonArray()) {
+            SpelledMobs.LOGGER.error("[SpelledMobs] 条件组合 {} 必须是数组", mode.name().toLowerCase());
+            return null;
+        }
+
+        List<SpellCondition> children = new ArrayList<>();
+        for (JsonElement childElement : element.getAsJsonArray()) {
+            if (childElement.isJsonObject()) {
+                SpellCondition child = fromJson(childElement.getAsJsonObject());
+                if (child != null) {
+                    children.add(child);
+                }
+            }
+        }
+        return new CompositeCondition(mode, children);
+    }
 }
\ No newline at end of file
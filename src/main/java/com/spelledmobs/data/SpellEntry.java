@@ -1,20 +1,46 @@
 package com.spelledmobs.data;
 
+import com.spelledmobs.config.SpelledMobsConfig;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 法术条目，包含法术的基本信息
  */
 public class SpellEntry {
+    // 每检查多少次后按实测通过率重新排列条件
+    private static final int REORDER_INTERVAL = 256;
+
     private final String spellId;
+    private final int spellIndex;
     private final int minLevel;
     private final int maxLevel;
     private final int minCastTime;
     private final int maxCastTime;
     private final int weight;
     private final float chance;
-    private final List<SpellCondition> conditions = new ArrayList<>();
+
+    // 施法条件，只在加载配置时追加，检查时直接遍历数组
+    // 加载时按估计开销排序，运行时按“开销 / 拒绝率”重新排序，让便宜且容易失败的条件先检查
+    // 统计和重新排序没有同步，条件检查只应在服务器线程进行
+    private SpellCondition[] conditions = new SpellCondition[0];
+    // 与 conditions 一一对应的检查次数和通过次数
+    private long[] conditionEvaluations = new long[0];
+    private long[] conditionPasses = new long[0];
+    // 与 conditions 一一对应的加载顺序，开启确定性随机时按它恢复加载时的顺序
+    private int[] conditionLoadOrder = new int[0];
+    private int checksSinceReorder;
+    private boolean reordered;
+
+    // 世界条件（天气、时间等），每个世界每tick只检查一次，结果缓存到下一tick
+    private SpellCondition[] worldConditions = new SpellCondition[0];
+    private long[] worldEvaluations = new long[0];
+    private long[] worldPasses = new long[0];
+    private LevelEnvironment checkedEnvironment;
+    private long checkedGameTime;
+    private boolean worldConditionsPassed;
 
     /**
      * 创建法术条目
@@ -30,6 +56,7 @@ public class SpellEntry {
     public SpellEntry(String spellId, int minLevel, int maxLevel, int minCastTime, int maxCastTime, int weight,
             float chance) {
         this.spellId = spellId;
+        this.spellIndex = SpellIds.intern(spellId);
         this.minLevel = minLevel;
         this.maxLevel = maxLevel;
         this.minCastTime = minCastTime;
@@ -45,6 +72,13 @@ public class SpellEntry {
         return spellId;
     }
 
+    /**
+     * 获取法术编号，见 {@link SpellIds}
+     */
+    public int getSpellIndex() {
+        return spellIndex;
+    }
+
     /**
      * 获取最小施法等级
      */
@@ -93,16 +127,86 @@ public class SpellEntry {
      * @param condition 条件
      */
     public void addCondition(SpellCondition condition) {
-        if (condition != null) {
-            conditions.add(condition);
+        if (condition == null) {
+            return;
+        }
+
+        if (condition.isWorldScoped()) {
+            worldConditions = Arrays.copyOf(worldConditions, worldConditions.length + 1);
+            worldConditions[worldConditions.length - 1] = condition;
+            worldEvaluations = new long[worldConditions.length];
+            worldPasses = new long[worldConditions.length];
+            checkedEnvironment = null;
+            return;
+        }
+
+        // 先恢复加载时的顺序，新条件按开销插入后，数组本身就是新的加载顺序
+        if (reordered) {
+            sortConditions(false);
+        }
+
+        // 插入到开销不小于它的第一个条件之前，开销相同时保持配置顺序
+        int index = conditions.length;
+        while (index > 0 && conditions[index - 1].getCost() > condition.getCost()) {
+            index--;
         }
+
+        SpellCondition[] newConditions = new SpellCondition[conditions.length + 1];
+        System.arraycopy(conditions, 0, newConditions, 0, index);
+        newConditions[index] = condition;
+        System.arraycopy(conditions, index, newConditions, index + 1, conditions.length - index);
+        conditions = newConditions;
+        conditionLoadOrder = new int[conditions.length];
+        for (int i = 0; i < conditionLoadOrder.length; i++) {
+            conditionLoadOrder[i] = i;
+        }
+        conditionEvaluations = new long[conditions.length];
+        conditionPasses = new long[conditions.length];
     }
 
     /**
      * 获取所有施法条件
      */
     public List<SpellCondition> getConditions() {
-        return conditions;
+        List<SpellCondition> all = new ArrayList<>(worldConditions.length + conditions.length);
+        Collections.addAll(all, worldConditions);
+        Collections.addAll(all, conditions);
+        return Collections.unmodifiableList(all);
+    }
+
+    /**
+     * 判断是否满足所有世界条件，同一世界同一tick内直接返回缓存的结果
+     * 
+     * @param context 条件上下文，只使用其中的世界环境快照
+     * @return 是否满足世界条件
+     */
+    public boolean checkWorldConditions(SpellConditionContext context) {
+        if (worldConditions.length == 0) {
+            return true;
+        }
+
+        LevelEnvironment environment = context.getEnvironment();
+        if (environment != null && environment == checkedEnvironment
+                && environment.getGameTime() == checkedGameTime) {
+            return worldConditionsPassed;
+        }
+
+        boolean passed = true;
+        for (int i = 0; i < worldConditions.length; i++) {
+            worldEvaluations[i]++;
+            if (!worldConditions[i].check(context)) {
+                passed = false;
+                break;
+            }
+            worldPasses[i]++;
+        }
+
+        if (environment != null) {
+            checkedEnvironment = environment;
+            checkedGameTime = environment.getGameTime();
+            worldConditionsPassed = passed;
+        }
+        return passed;
     }
 
     /**
@@ -112,18 +216,100 @@ public class SpellEntry {
      * @return 是否满足条件
      */
     public boolean checkConditions(SpellConditionContext context) {
-        if (conditions.isEmpty()) {
+        // 世界条件不满足时不再检查与实体相关的条件
+        if (!checkWorldConditions(context)) {
+            return false;
+        }
+
+        SpellCondition[] current = conditions;
+        if (current.length == 0) {
             return true;
         }
 
-        for (SpellCondition condition : conditions) {
-            boolean result = condition.check(context);
-            if (!result) {
-                return false;
+        // 确定性随机要求每次都按相同的顺序检查条件，否则是否消耗随机数取决于之前的统计
+        boolean deterministic = SpelledMobsConfig.isDeterministicRandom();
+        if (deterministic && reordered) {
+            sortConditions(false);
+        }
+
+        boolean passed = true;
+        for (int i = 0; i < current.length; i++) {
+            conditionEvaluations[i]++;
+            if (!current[i].check(context)) {
+                passed = false;
+                break;
+            }
+            conditionPasses[i]++;
+        }
+
+        if (!deterministic && current.length > 1 && ++checksSinceReorder >= REORDER_INTERVAL) {
+            checksSinceReorder = 0;
+            sortConditions(true);
+        }
+        return passed;
+    }
+
+    /**
+     * 重新排列条件
+     * 按“开销 / 拒绝率”从小到大排列时，条件之间相互独立的情况下每次检查的期望开销最小；
+     * 否则恢复加载时的顺序
+     *
+     * @param byRank 是否按“开销 / 拒绝率”排列
+     */
+    private void sortConditions(boolean byRank) {
+        // 条件数量很少，插入排序即可，同时交换统计数组
+        for (int i = 1; i < conditions.length; i++) {
+            SpellCondition condition = conditions[i];
+            long evaluations = conditionEvaluations[i];
+            long passes = conditionPasses[i];
+            int loadOrder = conditionLoadOrder[i];
+            double key = byRank ? getRank(condition, evaluations, passes) : loadOrder;
+
+            int j = i - 1;
+            while (j >= 0 && (byRank ? getRank(conditions[j], conditionEvaluations[j], conditionPasses[j])
+                    : conditionLoadOrder[j]) > key) {
+                conditions[j + 1] = conditions[j];
+                conditionEvaluations[j + 1] = conditionEvaluations[j];
+                conditionPasses[j + 1] = conditionPasses[j];
+                conditionLoadOrder[j + 1] = conditionLoadOrder[j];
+                j--;
             }
+            conditions[j + 1] = condition;
+            conditionEvaluations[j + 1] = evaluations;
+            conditionPasses[j + 1] = passes;
+            conditionLoadOrder[j + 1] = loadOrder;
         }
+        reordered = byRank;
+    }
 
-        return true;
+    /**
+     * 计算条件的排序值，尚未检查过的条件按一半通过率估计
+     */
+    private static double getRank(SpellCondition condition, long evaluations, long passes) {
+        double rejectRate = evaluations > 0 ? 1.0 - (double) passes / evaluations : 0.5;
+        return condition.getCost() / Math.max(rejectRate, 0.001);
+    }
+
+    /**
+     * 获取各条件的检查统计，按当前检查顺序排列
+     * 
+     * @return 每个条件一行的统计信息
+     */
+    public List<String> getConditionStatistics() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < worldConditions.length; i++) {
+            long evaluations = worldEvaluations[i];
+            double passRate = evaluations > 0 ? (double) worldPasses[i] / evaluations * 100.0 : 0.0;
+            lines.add(String.format("[世界] %s 检查 %d 次, 通过率 %.1f%%",
+                    worldConditions[i].getType().getId(), evaluations, passRate));
+        }
+        for (int i = 0; i < conditions.length; i++) {
+            long evaluations = conditionEvaluations[i];
+            double passRate = evaluations > 0 ? (double) conditionPasses[i] / evaluations * 100.0 : 0.0;
+            lines.add(String.format("%d. %s 开销 %d, 检查 %d 次, 通过率 %.1f%%",
+                    i + 1, conditions[i].getType().getId(), conditions[i].getCost(), evaluations, passRate));
+        }
+        return lines;
     }
 
     @Override
@@ -134,7 +320,7 @@ public class SpellEntry {
                 ", maxLevel=" + maxLevel +
                 ", minCastTime=" + minCastTime +
                 ", maxCastTime=" + maxCastTime +
-                ", conditions=" + conditions.size() +
+                ", conditions=" + (worldConditions.length + conditions.length) +
                 ", weight=" + weight +
                 ", chance=" + chance +
                 '}';
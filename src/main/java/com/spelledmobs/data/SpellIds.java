@@ -0,0 +1,101 @@
+package com.spelledmobs.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 法术ID登记表，把法术ID字符串映射为从0开始的连续整数编号
+ * 编号在配置加载时分配且只增不减，热路径上可以直接用编号索引基本类型数组，避免字符串哈希和装箱
+ */
+public final class SpellIds {
+    // Iron's Spells 的默认命名空间
+    public static final String DEFAULT_NAMESPACE = "irons_spellbooks";
+
+    private static final Map<String, Integer> BY_NAME = new HashMap<>();
+    private static String[] names = new String[64];
+    // 持续性法术的持续时间（刻），0表示不是持续性法术
+    private static int[] continuousDurations = new int[64];
+    private static int size;
+
+    private SpellIds() {
+    }
+
+    /**
+     * 规范化法术ID，没有命名空间时补上 Iron's Spells 的命名空间
+     *
+     * @param spellId 法术ID，如 "fireball" 或 "irons_spellbooks:fireball"
+     * @return 带命名空间的法术ID
+     */
+    public static String normalize(String spellId) {
+        return spellId.contains(":") ? spellId : DEFAULT_NAMESPACE + ":" + spellId;
+    }
+
+    /**
+     * 获取法术ID的编号，未登记时分配新编号
+     *
+     * @param spellId 法术ID，可以省略命名空间
+     * @return 法术编号
+     */
+    public static synchronized int intern(String spellId) {
+        String name = normalize(spellId);
+        Integer id = BY_NAME.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            continuousDurations = Arrays.copyOf(continuousDurations, size * 2);
+        }
+        names[size] = name;
+        BY_NAME.put(name, size);
+        return size++;
+    }
+
+    /**
+     * 获取编号对应的规范化法术ID
+     *
+     * @param id 法术编号
+     * @return 带命名空间的法术ID
+     */
+    public static String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * 获取已登记的法术数量，所有编号都小于此值
+     */
+    public static int size() {
+        return size;
+    }
+
+    /**
+     * 登记持续性法术的持续时间
+     *
+     * @param spellId  法术ID
+     * @param duration 持续时间（刻）
+     */
+    public static synchronized void registerContinuous(String spellId, int duration) {
+        continuousDurations[intern(spellId)] = Math.max(0, duration);
+    }
+
+    /**
+     * 是否是持续性法术
+     *
+     * @param id 法术编号
+     */
+    public static boolean isContinuous(int id) {
+        return continuousDurations[id] > 0;
+    }
+
+    /**
+     * 获取持续性法术的持续时间
+     *
+     * @param id 法术编号
+     * @return 持续时间（刻），如果不是持续性法术则返回0
+     */
+    public static int getContinuousDuration(int id) {
+        return continuousDurations[id];
+    }
+}
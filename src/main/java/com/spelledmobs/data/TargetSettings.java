@@ -0,0 +1,152 @@
+package com.spelledmobs.data;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.spelledmobs.SpelledMobs;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 施法者的目标选择设置，对应配置文件中的 "settings" 块
+ * 目标优先级在加载时编译为按实体类型查表的比较器，选择目标时不再解析字符串
+ */
+public class TargetSettings {
+    // 优先级列表中的特殊项：所有生物、其他所有实体
+    private static final String MOB = "mob";
+    private static final String OTHER = "other";
+
+    private static final TargetSettings DEFAULTS = new TargetSettings(EntitySpellProfile.DEFAULT_SEARCH_RADIUS,
+            List.of("player", MOB, OTHER));
+
+    private final double searchRadius;
+    private final List<String> priorityList;
+    private final Map<EntityType<?>, Integer> typeRanks = new IdentityHashMap<>();
+    private final int mobRank;
+    private final int otherRank;
+    private final Comparator<LivingEntity> priority;
+    private final boolean playersFirst;
+
+    /**
+     * 创建目标选择设置
+     *
+     * @param searchRadius 目标搜索半径
+     * @param priorityList 目标优先级，越靠前越优先，可以是实体ID（省略命名空间时为minecraft）、"mob" 或 "other"
+     */
+    public TargetSettings(double searchRadius, List<String> priorityList) {
+        this.searchRadius = searchRadius > 0 ? searchRadius : EntitySpellProfile.DEFAULT_SEARCH_RADIUS;
+        this.priorityList = Collections.unmodifiableList(new ArrayList<>(priorityList));
+
+        int mob = -1;
+        int other = -1;
+        for (int i = 0; i < priorityList.size(); i++) {
+            String name = priorityList.get(i);
+            if (MOB.equals(name)) {
+                mob = mob < 0 ? i : mob;
+                continue;
+            }
+            if (OTHER.equals(name)) {
+                other = other < 0 ? i : other;
+                continue;
+            }
+            ResourceLocation typeId = ResourceLocation.tryParse(name);
+            EntityType<?> type = typeId != null ? BuiltInRegistries.ENTITY_TYPE.getOptional(typeId).orElse(null) : null;
+            if (type == null) {
+                SpelledMobs.LOGGER.warn("[SpelledMobs] 目标优先级中的实体类型无效: {}", name);
+                continue;
+            }
+            typeRanks.putIfAbsent(type, i);
+        }
+        this.mobRank = mob;
+        // 没有列出 "other" 时，未列出的实体排在最后
+        this.otherRank = other >= 0 ? other : priorityList.size();
+        this.priority = Comparator.comparingInt(this::getRank);
+        // 玩家排在第一位时，选择目标可以先只检查世界中的玩家
+        Integer playerRank = typeRanks.get(EntityType.PLAYER);
+        this.playersFirst = playerRank != null && playerRank == 0;
+    }
+
+    /**
+     * 默认的目标选择设置：搜索半径16格，玩家优先，然后是生物
+     */
+    public static TargetSettings defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * 从JSON解析目标选择设置，缺省的字段使用默认值
+     * 法术只对单个目标施放，"maxTargets" 字段目前不使用
+     *
+     * @param jsonObject 形如 {"searchRadius": 16.0, "targetPriority": ["player", "other"]} 的JSON对象
+     * @return 目标选择设置
+     */
+    public static TargetSettings fromJson(JsonObject jsonObject) {
+        double searchRadius = DEFAULTS.searchRadius;
+        if (jsonObject.has("searchRadius")) {
+            searchRadius = jsonObject.get("searchRadius").getAsDouble();
+        }
+
+        List<String> priorityList = DEFAULTS.priorityList;
+        if (jsonObject.has("targetPriority") && jsonObject.get("targetPriority").isJsonArray()) {
+            priorityList = new ArrayList<>();
+            for (JsonElement element : jsonObject.get("targetPriority").getAsJsonArray()) {
+                priorityList.add(element.getAsString());
+            }
+        }
+
+        return new TargetSettings(searchRadius, priorityList);
+    }
+
+    /**
+     * 获取实体在优先级列表中的位置，越小越优先
+     *
+     * @param entity 实体
+     * @return 优先级
+     */
+    public int getRank(LivingEntity entity) {
+        Integer rank = typeRanks.get(entity.getType());
+        if (rank != null) {
+            return rank;
+        }
+        if (mobRank >= 0 && entity instanceof Mob) {
+            return mobRank;
+        }
+        return otherRank;
+    }
+
+    /**
+     * 获取目标搜索半径
+     */
+    public double getSearchRadius() {
+        return searchRadius;
+    }
+
+    /**
+     * 获取目标优先级列表
+     */
+    public List<String> getPriorityList() {
+        return priorityList;
+    }
+
+    /**
+     * 获取按优先级排序的比较器，同一优先级的目标由调用者按距离排序
+     */
+    public Comparator<LivingEntity> getPriority() {
+        return priority;
+    }
+
+    /**
+     * 玩家是否排在优先级第一位
+     */
+    public boolean isPlayersFirst() {
+        return playersFirst;
+    }
+}
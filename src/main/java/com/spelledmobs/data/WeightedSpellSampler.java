@@ -0,0 +1,79 @@
+package com.spelledmobs.data;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 按权重抽取法术的采样器，记录候选法术的权重前缀和，抽取时二分查找
+ * 缓冲区在多次抽取之间复用，只在候选数量超过容量时扩容；不是线程安全的，只应在服务器线程使用
+ */
+public class WeightedSpellSampler {
+    private SpellEntry[] entries = new SpellEntry[8];
+    // cumulativeWeights[i] 为前 i+1 个候选法术的权重之和
+    private int[] cumulativeWeights = new int[8];
+    private int count;
+    private int totalWeight;
+
+    /**
+     * 清空候选法术，准备下一次抽取
+     */
+    public void reset() {
+        // 清掉引用，避免缓冲区持有已重载的法术条目
+        Arrays.fill(entries, 0, count, null);
+        count = 0;
+        totalWeight = 0;
+    }
+
+    /**
+     * 添加候选法术，权重不大于0的法术不会被抽中
+     *
+     * @param entry 法术条目
+     */
+    public void add(SpellEntry entry) {
+        int weight = entry.getWeight();
+        if (weight <= 0) {
+            return;
+        }
+        if (count == entries.length) {
+            entries = Arrays.copyOf(entries, count * 2);
+            cumulativeWeights = Arrays.copyOf(cumulativeWeights, count * 2);
+        }
+        totalWeight += weight;
+        entries[count] = entry;
+        cumulativeWeights[count] = totalWeight;
+        count++;
+    }
+
+    /**
+     * 是否没有候选法术
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * 按权重随机抽取一个候选法术，每个法术被抽中的概率为其权重占总权重的比例
+     *
+     * @param random 随机数生成器
+     * @return 抽中的法术，没有候选法术时返回null
+     */
+    public SpellEntry sample(Random random) {
+        if (count == 0) {
+            return null;
+        }
+
+        // 找到第一个前缀和大于随机值的位置
+        int value = random.nextInt(totalWeight);
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeWeights[mid] > value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return entries[low];
+    }
+}
@@ -0,0 +1,116 @@
+package com.spelledmobs.data.conditions;
+
+import com.spelledmobs.data.SpellCondition;
+import com.spelledmobs.data.SpellConditionContext;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 组合条件，支持全部满足（all）、任一满足（any）和取反（not），检查时短路求值
+ */
+public class CompositeCondition implements SpellCondition {
+    /**
+     * 组合方式
+     */
+    public enum Mode {
+        ALL,
+        ANY,
+        NOT
+    }
+
+    private final Mode mode;
+    private final SpellCondition[] children;
+
+    /**
+     * 创建组合条件
+     * 
+     * @param mode     组合方式
+     * @param children 子条件，取反时只使用第一个
+     */
+    public CompositeCondition(Mode mode, List<SpellCondition> children) {
+        this.mode = mode;
+        this.children = children.toArray(new SpellCondition[0]);
+    }
+
+    @Override
+    public boolean check(SpellConditionContext context) {
+        switch (mode) {
+            case ALL:
+                for (SpellCondition child : children) {
+                    if (!child.check(context)) {
+                        return false;
+                    }
+                }
+                return true;
+            case ANY:
+                for (SpellCondition child : children) {
+                    if (child.check(context)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return children.length > 0 && !children[0].check(context);
+        }
+    }
+
+    @Override
+    public ConditionType getType() {
+        return switch (mode) {
+            case ALL -> ConditionType.ALL;
+            case ANY -> ConditionType.ANY;
+            case NOT -> ConditionType.NOT;
+        };
+    }
+
+    @Override
+    public ComparisonOperator getOperator() {
+        return ComparisonOperator.EQUALS;
+    }
+
+    @Override
+    public int getCost() {
+        int cost = 0;
+        for (SpellCondition child : children) {
+            cost += child.getCost();
+        }
+        return Math.max(1, cost);
+    }
+
+    @Override
+    public boolean isWorldScoped() {
+        for (SpellCondition child : children) {
+            if (!child.isWorldScoped()) {
+                return false;
+            }
+        }
+        return children.length > 0;
+    }
+
+    @Override
+    public String getKey() {
+        // all/any 与子条件顺序无关
+        String[] keys = new String[children.length];
+        for (int i = 0; i < children.length; i++) {
+            keys[i] = children[i].getKey();
+        }
+        if (mode != Mode.NOT) {
+            Arrays.sort(keys);
+        }
+        return mode + "(" + String.join(",", keys) + ")";
+    }
+
+    /**
+     * 获取组合方式
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 获取子条件
+     */
+    public List<SpellCondition> getChildren() {
+        return Arrays.asList(children);
+    }
+}
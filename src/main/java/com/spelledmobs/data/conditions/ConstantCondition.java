@@ -0,0 +1,63 @@
+package com.spelledmobs.data.conditions;
+
+import com.spelledmobs.data.SpellCondition;
+import com.spelledmobs.data.SpellConditionContext;
+
+/**
+ * 常量条件，由条件编译器折叠得到
+ */
+public final class ConstantCondition implements SpellCondition {
+    public static final ConstantCondition TRUE = new ConstantCondition(true);
+    public static final ConstantCondition FALSE = new ConstantCondition(false);
+
+    private final boolean value;
+
+    private ConstantCondition(boolean value) {
+        this.value = value;
+    }
+
+    /**
+     * 获取对应值的常量条件
+     */
+    public static ConstantCondition of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * 获取常量值
+     */
+    public boolean getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean check(SpellConditionContext context) {
+        return value;
+    }
+
+    @Override
+    public ConditionType getType() {
+        return ConditionType.CONSTANT;
+    }
+
+    @Override
+    public ComparisonOperator getOperator() {
+        return ComparisonOperator.EQUALS;
+    }
+
+    @Override
+    public int getCost() {
+        return 0;
+    }
+
+    @Override
+    public boolean isWorldScoped() {
+        // 常量为假时按世界条件处理，依赖它的法术在实体检查之前就被剪枝
+        return true;
+    }
+
+    @Override
+    public String getKey() {
+        return value ? "TRUE" : "FALSE";
+    }
+}
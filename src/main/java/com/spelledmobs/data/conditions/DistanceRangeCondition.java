@@ -0,0 +1,63 @@
+package com.spelledmobs.data.conditions;
+
+import com.spelledmobs.data.SpellCondition;
+import com.spelledmobs.data.SpellConditionContext;
+
+/**
+ * 目标距离区间条件，由条件编译器把同一组中的多个 TARGET_DISTANCE 上下界合并得到
+ * 直接比较距离的平方，不需要开方
+ */
+public class DistanceRangeCondition implements SpellCondition {
+    private final double min;
+    private final boolean minInclusive;
+    private final double max;
+    private final boolean maxInclusive;
+    private final double minSqr;
+    private final double maxSqr;
+
+    /**
+     * 创建目标距离区间条件
+     * 
+     * @param min          下界，负无穷表示没有下界
+     * @param minInclusive 是否包含下界
+     * @param max          上界，正无穷表示没有上界
+     * @param maxInclusive 是否包含上界
+     */
+    public DistanceRangeCondition(double min, boolean minInclusive, double max, boolean maxInclusive) {
+        this.min = min;
+        this.minInclusive = minInclusive;
+        this.max = max;
+        this.maxInclusive = maxInclusive;
+        // 距离不会为负：负的下界等同于没有下界，负的上界任何距离都不满足，不能直接平方
+        this.minSqr = min >= 0 ? min * min : -1;
+        this.maxSqr = max >= 0 ? max * max : -1;
+    }
+
+    @Override
+    public boolean check(SpellConditionContext context) {
+        double distanceSqr = context.getDistanceSqr();
+        if (Double.isNaN(distanceSqr)) {
+            return false;
+        }
+
+        if (minSqr >= 0 && (minInclusive ? distanceSqr < minSqr : distanceSqr <= minSqr)) {
+            return false;
+        }
+        return maxInclusive ? distanceSqr <= maxSqr : distanceSqr < maxSqr;
+    }
+
+    @Override
+    public ConditionType getType() {
+        return ConditionType.TARGET_DISTANCE;
+    }
+
+    @Override
+    public ComparisonOperator getOperator() {
+        return ComparisonOperator.EQUALS;
+    }
+
+    @Override
+    public String getKey() {
+        return "TARGET_DISTANCE" + (minInclusive ? "[" : "(") + min + "," + max + (maxInclusive ? "]" : ")");
+    }
+}
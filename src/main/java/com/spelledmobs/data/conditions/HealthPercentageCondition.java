@@ -25,19 +25,12 @@ public class HealthPercentageCondition extends BaseSpellCondition {
 
     @Override
     public boolean check(SpellConditionContext context) {
-        if (context.getCaster() == null) {
+        // 获取生命值百分比，没有施法者或最大生命值无效时为NaN
+        double percentage = context.getHealthPercentage();
+        if (Double.isNaN(percentage)) {
             return false;
         }
 
-        // 计算生命值百分比
-        float maxHealth = context.getCaster().getMaxHealth();
-        if (maxHealth <= 0) {
-            return false;
-        }
-
-        float currentHealth = context.getCaster().getHealth();
-        float percentage = (currentHealth / maxHealth) * 100.0f;
-
         // 比较百分比
         boolean result = getOperator().compareNumeric(percentage, getNumericValue());
         return applyInvert(result);
@@ -0,0 +1,40 @@
+package com.spelledmobs.data.conditions;
+
+import com.google.gson.JsonObject;
+import com.spelledmobs.data.BaseSpellCondition;
+import com.spelledmobs.data.SpellCondition;
+import com.spelledmobs.data.SpellConditionContext;
+
+/**
+ * 月相条件
+ */
+public class MoonPhaseCondition extends BaseSpellCondition {
+
+    /**
+     * 创建月相条件
+     * 
+     * @param operator     比较操作符
+     * @param numericValue 月相（0-7，0为满月，4为新月）
+     * @param invert       是否反转结果
+     * @param extraData    额外数据
+     */
+    public MoonPhaseCondition(ComparisonOperator operator, double numericValue, boolean invert, JsonObject extraData) {
+        super(ConditionType.MOON_PHASE, operator, null, numericValue, invert, extraData);
+    }
+
+    @Override
+    public boolean check(SpellConditionContext context) {
+        if (context.getEnvironment() == null) {
+            return false;
+        }
+
+        // 比较月相
+        boolean result = getOperator().compareNumeric(context.getEnvironment().getMoonPhase(), getNumericValue());
+        return applyInvert(result);
+    }
+
+    @Override
+    public boolean isWorldScoped() {
+        return true;
+    }
+}
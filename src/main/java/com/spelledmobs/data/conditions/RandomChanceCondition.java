@@ -4,14 +4,12 @@ import com.google.gson.JsonObject;
 import com.spelledmobs.data.BaseSpellCondition;
 import com.spelledmobs.data.SpellCondition;
 import com.spelledmobs.data.SpellConditionContext;
-import java.util.Random;
+import com.spelledmobs.util.SpellRandom;
 
 /**
  * 随机几率条件
  */
 public class RandomChanceCondition extends BaseSpellCondition {
-    private static final Random RANDOM = new Random();
-
     /**
      * 创建随机几率条件
      * 
@@ -28,7 +26,7 @@ public class RandomChanceCondition extends BaseSpellCondition {
     @Override
     public boolean check(SpellConditionContext context) {
         // 生成0-100之间的随机数
-        double randomValue = RANDOM.nextDouble() * 100.0;
+        double randomValue = SpellRandom.current().nextDouble() * 100.0;
         
         // 比较随机数和设定的几率
         boolean result = getOperator().compareNumeric(randomValue, getNumericValue());
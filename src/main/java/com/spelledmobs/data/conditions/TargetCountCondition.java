@@ -0,0 +1,70 @@
+package com.spelledmobs.data.conditions;
+
+import com.google.gson.JsonObject;
+import com.spelledmobs.SpelledMobs;
+import com.spelledmobs.data.BaseSpellCondition;
+import com.spelledmobs.data.SpellCondition;
+import com.spelledmobs.data.SpellConditionContext;
+import com.spelledmobs.util.LivingEntityGrid;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+
+/**
+ * 附近生物数量条件，统计施法者周围指定类型的存活生物数量（不包括施法者自己）
+ * 使用每tick共享的 {@link LivingEntityGrid}，不为每个施法者单独做范围查询
+ */
+public class TargetCountCondition extends BaseSpellCondition {
+    private final double radius;
+    private final EntityType<?> targetType;
+    // 配置了无法识别的实体类型时，数量始终为0
+    private final boolean unknownType;
+
+    /**
+     * 创建附近生物数量条件
+     * 
+     * @param operator     比较操作符
+     * @param numericValue 数量
+     * @param invert       是否反转结果
+     * @param extraData    额外数据，支持 radius（半径，默认16）和 target_type（实体类型ID，缺省时统计所有生物）
+     */
+    public TargetCountCondition(ComparisonOperator operator, double numericValue, boolean invert,
+            JsonObject extraData) {
+        super(ConditionType.TARGET_COUNT, operator, null, numericValue, invert, extraData);
+        this.radius = Math.max(0, getExtraDataAsDouble("radius", 16.0));
+
+        String typeId = getExtraDataAsString("target_type", null);
+        EntityType<?> type = null;
+        if (typeId != null) {
+            ResourceLocation typeKey = ResourceLocation.tryParse(typeId);
+            type = typeKey != null ? BuiltInRegistries.ENTITY_TYPE.getOptional(typeKey).orElse(null) : null;
+            if (type == null) {
+                SpelledMobs.LOGGER.warn("[SpelledMobs] TARGET_COUNT 条件中的实体类型 {} 无法识别", typeId);
+            }
+        }
+        this.targetType = type;
+        this.unknownType = typeId != null && type == null;
+    }
+
+    @Override
+    public boolean check(SpellConditionContext context) {
+        LivingEntity caster = context.getCaster();
+        if (caster == null || !(caster.level() instanceof ServerLevel serverLevel)) {
+            return false;
+        }
+
+        int count = 0;
+        if (!unknownType) {
+            // 数到比阈值大的第一个整数即可确定所有比较的结果
+            int limit = (int) Math.min(Integer.MAX_VALUE, Math.max(0, Math.floor(getNumericValue())) + 1);
+            count = LivingEntityGrid.get(serverLevel).count(caster.getX(), caster.getY(), caster.getZ(),
+                    radius, targetType, caster, limit);
+        }
+
+        // 比较数量
+        boolean result = getOperator().compareNumeric(count, getNumericValue());
+        return applyInvert(result);
+    }
+}
@@ -25,15 +25,16 @@ public class TargetDistanceCondition extends BaseSpellCondition {
 
     @Override
     public boolean check(SpellConditionContext context) {
-        if (context.getCaster() == null || context.getTarget() == null) {
+        double distanceSqr = context.getDistanceSqr();
+        if (Double.isNaN(distanceSqr)) {
             return false;
         }
 
-        // 计算与目标的距离
-        double distance = context.getCaster().distanceTo(context.getTarget());
-
-        // 比较距离
-        boolean result = getOperator().compareNumeric(distance, getNumericValue());
+        // 距离和阈值都不为负时直接比较平方，避免开方
+        double value = getNumericValue();
+        boolean result = value >= 0
+                ? getOperator().compareNumeric(distanceSqr, value * value)
+                : getOperator().compareNumeric(Math.sqrt(distanceSqr), value);
         return applyInvert(result);
     }
 }
\ No newline at end of file
@@ -4,8 +4,6 @@ import com.google.gson.JsonObject;
 import com.spelledmobs.data.BaseSpellCondition;
 import com.spelledmobs.data.SpellCondition;
 import com.spelledmobs.data.SpellConditionContext;
-import net.minecraft.resources.ResourceLocation;
-import net.minecraft.world.entity.EntityType;
 
 /**
  * 目标类型条件
@@ -26,14 +24,12 @@ public class TargetTypeCondition extends BaseSpellCondition {
 
     @Override
     public boolean check(SpellConditionContext context) {
-        if (context.getTarget() == null) {
+        // 获取目标实体的类型ID
+        String targetTypeString = context.getTargetTypeId();
+        if (targetTypeString == null) {
             return false;
         }
 
-        // 获取目标实体的类型ID
-        ResourceLocation targetTypeId = EntityType.getKey(context.getTarget().getType());
-        String targetTypeString = targetTypeId.toString();
-
         // 比较类型
         boolean result = getOperator().compareString(targetTypeString, getStringValue());
         return applyInvert(result);
@@ -24,15 +24,20 @@ public class TimeOfDayCondition extends BaseSpellCondition {
 
     @Override
     public boolean check(SpellConditionContext context) {
-        if (context.getLevel() == null) {
+        if (context.getEnvironment() == null) {
             return false;
         }
 
         // 获取当前世界时间
-        long worldTime = context.getLevel().getDayTime() % 24000L;
+        long worldTime = context.getEnvironment().getTimeOfDay();
 
         // 比较时间
         boolean result = getOperator().compareNumeric(worldTime, getNumericValue());
         return applyInvert(result);
     }
+
+    @Override
+    public boolean isWorldScoped() {
+        return true;
+    }
 }
\ No newline at end of file
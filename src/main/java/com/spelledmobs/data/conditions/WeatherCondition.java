@@ -24,22 +24,20 @@ public class WeatherCondition extends BaseSpellCondition {
 
     @Override
     public boolean check(SpellConditionContext context) {
-        if (context.getLevel() == null) {
+        if (context.getEnvironment() == null) {
             return false;
         }
 
         // 获取当前天气状态
-        String currentWeather;
-        if (context.getLevel().isThundering()) {
-            currentWeather = "thunder";
-        } else if (context.getLevel().isRaining()) {
-            currentWeather = "rain";
-        } else {
-            currentWeather = "clear";
-        }
+        String currentWeather = context.getEnvironment().getWeather();
 
         // 比较天气
         boolean result = getOperator().compareString(currentWeather, getStringValue());
         return applyInvert(result);
     }
+
+    @Override
+    public boolean isWorldScoped() {
+        return true;
+    }
 }
\ No newline at end of file
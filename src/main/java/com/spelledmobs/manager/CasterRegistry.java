@@ -0,0 +1,125 @@
+package com.spelledmobs.manager;
+
+import com.spelledmobs.SpelledMobs;
+import com.spelledmobs.data.SpellCastingData;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.Level;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 可施法实体登记表，按世界记录拥有法术配置的实体
+ * 由实体加入/离开世界事件维护，配置重载时整体重建，避免每tick遍历世界中的全部实体
+ */
+public class CasterRegistry {
+    private final SpellCastingData spellCastingData;
+
+    // 每个世界中可施法的实体，同时作为增量清理的轮转队列：检查过的实体移到末尾
+    private final Map<ResourceKey<Level>, LinkedHashSet<LivingEntity>> casters = new HashMap<>();
+
+    /**
+     * 创建可施法实体登记表
+     *
+     * @param spellCastingData 实体施法数据
+     */
+    public CasterRegistry(SpellCastingData spellCastingData) {
+        this.spellCastingData = spellCastingData;
+    }
+
+    /**
+     * 登记实体，只有拥有法术配置的实体才会被记录
+     *
+     * @param level  实体所在世界
+     * @param entity 实体
+     * @return 是否被登记
+     */
+    public boolean track(ServerLevel level, LivingEntity entity) {
+        if (entity == null || !spellCastingData.hasSpells(entity)) {
+            return false;
+        }
+        return casters.computeIfAbsent(level.dimension(), k -> new LinkedHashSet<>()).add(entity);
+    }
+
+    /**
+     * 移除实体的登记
+     *
+     * @param level  实体所在世界
+     * @param entity 实体
+     * @return 实体此前是否已登记
+     */
+    public boolean untrack(ServerLevel level, LivingEntity entity) {
+        Set<LivingEntity> levelCasters = casters.get(level.dimension());
+        return levelCasters != null && levelCasters.remove(entity);
+    }
+
+    /**
+     * 增量清理已失效的实体，每次最多检查固定数量的登记，漏掉离开事件的实体最终也会被移除
+     * 从登记表头部依次取出实体检查，仍然有效的移到末尾，队列长度始终等于当前登记的实体数量
+     *
+     * @param level     世界
+     * @param maxChecks 本次最多检查的实体数量
+     * @param onRemoved 实体被清理时的回调
+     * @return 本次清理的实体数量
+     */
+    public int sweep(ServerLevel level, int maxChecks, Consumer<LivingEntity> onRemoved) {
+        LinkedHashSet<LivingEntity> levelCasters = casters.get(level.dimension());
+        if (levelCasters == null) {
+            return 0;
+        }
+
+        int removed = 0;
+        int checks = Math.min(maxChecks, levelCasters.size());
+        for (int i = 0; i < checks; i++) {
+            Iterator<LivingEntity> iterator = levelCasters.iterator();
+            LivingEntity entity = iterator.next();
+            iterator.remove();
+            if (entity.isRemoved() || !entity.isAlive()) {
+                onRemoved.accept(entity);
+                removed++;
+            } else {
+                levelCasters.add(entity);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 获取世界中已登记的可施法实体
+     *
+     * @param level 世界
+     * @return 可施法实体集合（只读）
+     */
+    public Set<LivingEntity> getCasters(ServerLevel level) {
+        Set<LivingEntity> levelCasters = casters.get(level.dimension());
+        return levelCasters != null ? Collections.unmodifiableSet(levelCasters) : Collections.emptySet();
+    }
+
+    /**
+     * 按当前配置重建所有世界的登记表
+     *
+     * @param levels 所有已加载的世界
+     */
+    public void rebuild(Iterable<ServerLevel> levels) {
+        casters.clear();
+
+        int total = 0;
+        for (ServerLevel level : levels) {
+            for (Entity entity : level.getAllEntities()) {
+                if (entity instanceof LivingEntity livingEntity && livingEntity.isAlive()
+                        && track(level, livingEntity)) {
+                    total++;
+                }
+            }
+        }
+
+        SpelledMobs.LOGGER.info("[SpelledMobs] 可施法实体登记表已重建，共 {} 个实体", total);
+    }
+}
@@ -0,0 +1,285 @@
+package com.spelledmobs.manager;
+
+import net.minecraft.world.entity.LivingEntity;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 施法者调度器，基于分层时间轮
+ * 每个施法者按下一次检查的游戏刻放入对应的槽位，每tick只处理到期的槽位，
+ * 使每tick的开销与到期施法者数量成正比，而不是与全部施法者数量成正比
+ * 到期的施法者进入待处理队列，本tick时间预算用完时剩余部分留到下一tick继续处理
+ * 没有目标的施法者可以休眠，休眠期间不占用时间轮，直到被唤醒
+ */
+public class CasterScheduler {
+    // 每层时间轮的槽位数（2的幂）
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // 时间轮层数，三层可覆盖 64^3 刻（约3.6小时）
+    private static final int WHEEL_LEVELS = 3;
+    private static final long MAX_DELAY = (1L << (WHEEL_BITS * WHEEL_LEVELS)) - 1;
+
+    // 每个槽位是一个带哨兵节点的双向链表
+    private final Entry[][] wheels = new Entry[WHEEL_LEVELS][WHEEL_SIZE];
+    private final Map<LivingEntity, Entry> entries = new IdentityHashMap<>();
+    // 已到期、等待处理的条目，按到期顺序轮流处理
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    // 休眠中的条目
+    private final Set<Entry> dormant = Collections.newSetFromMap(new IdentityHashMap<>());
+    // 已处理到的游戏刻
+    private long currentTick;
+    // 因时间预算不足而推迟到下一tick的累计次数
+    private long deferredCount;
+
+    /**
+     * 调度条目
+     */
+    public static final class Entry {
+        private final LivingEntity entity;
+        private long dueTick;
+        private boolean removed;
+        private boolean queued;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(LivingEntity entity) {
+            this.entity = entity;
+        }
+
+        /**
+         * 获取施法者
+         */
+        public LivingEntity getEntity() {
+            return entity;
+        }
+
+        private boolean isLinked() {
+            return prev != null;
+        }
+
+        private void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+
+    /**
+     * 创建调度器
+     *
+     * @param currentTick 当前游戏刻
+     */
+    public CasterScheduler(long currentTick) {
+        this.currentTick = currentTick;
+        for (int level = 0; level < WHEEL_LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                Entry sentinel = new Entry(null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                wheels[level][slot] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * 安排施法者在指定游戏刻接受检查，已安排的施法者会被重新安排
+     *
+     * @param entity  施法者
+     * @param dueTick 检查的游戏刻，早于下一刻时按下一刻处理
+     */
+    public void schedule(LivingEntity entity, long dueTick) {
+        Entry entry = entries.get(entity);
+        if (entry == null) {
+            entry = new Entry(entity);
+            entries.put(entity, entry);
+        }
+        entry.unlink();
+        dormant.remove(entry);
+        entry.dueTick = Math.max(dueTick, currentTick + 1);
+        place(entry);
+    }
+
+    /**
+     * 让施法者进入休眠，直到被 {@link #schedule} 或 {@link #wakeIf} 唤醒
+     *
+     * @param entity 施法者
+     */
+    public void park(LivingEntity entity) {
+        Entry entry = entries.get(entity);
+        if (entry != null) {
+            entry.unlink();
+            dormant.add(entry);
+        }
+    }
+
+    /**
+     * 施法者是否处于休眠
+     */
+    public boolean isDormant(LivingEntity entity) {
+        Entry entry = entries.get(entity);
+        return entry != null && dormant.contains(entry);
+    }
+
+    /**
+     * 唤醒满足条件的休眠施法者
+     *
+     * @param condition 唤醒条件
+     * @param dueTick   唤醒后检查的游戏刻
+     * @return 唤醒的数量
+     */
+    public int wakeIf(Predicate<LivingEntity> condition, long dueTick) {
+        int woken = 0;
+        Iterator<Entry> iterator = dormant.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (condition.test(entry.entity)) {
+                iterator.remove();
+                entry.dueTick = Math.max(dueTick, currentTick + 1);
+                place(entry);
+                woken++;
+            }
+        }
+        return woken;
+    }
+
+    /**
+     * 获取休眠中的施法者数量
+     */
+    public int getDormantCount() {
+        return dormant.size();
+    }
+
+    /**
+     * 将施法者移出调度器
+     *
+     * @param entity 施法者
+     */
+    public void remove(LivingEntity entity) {
+        Entry entry = entries.remove(entity);
+        if (entry != null) {
+            entry.unlink();
+            dormant.remove(entry);
+            entry.removed = true;
+        }
+    }
+
+    /**
+     * 推进到指定游戏刻，期间到期的施法者追加到待处理队列末尾
+     *
+     * @param gameTime 当前游戏刻
+     */
+    public void advance(long gameTime) {
+        while (currentTick < gameTime) {
+            currentTick++;
+            // 先把高层槽位中到期的条目下放，再处理最底层的当前槽位
+            for (int level = WHEEL_LEVELS - 1; level > 0; level--) {
+                long shift = (long) WHEEL_BITS * level;
+                if ((currentTick & ((1L << shift) - 1)) == 0) {
+                    cascade(wheels[level][(int) ((currentTick >> shift) & WHEEL_MASK)]);
+                }
+            }
+            drain(wheels[0][(int) (currentTick & WHEEL_MASK)]);
+        }
+    }
+
+    /**
+     * 取出下一个待处理的条目
+     * 取出的条目已离开时间轮，处理后需重新调用 {@link #schedule} 才会再次被检查
+     *
+     * @return 待处理的条目，队列为空时返回null
+     */
+    public Entry poll() {
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            entry.queued = false;
+            // 跳过已移除、休眠或在等待期间被重新安排的条目
+            if (!entry.removed && !entry.isLinked() && !dormant.contains(entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 本tick时间预算用完，记录剩余待处理条目的推迟
+     */
+    public void deferRemaining() {
+        deferredCount += pending.size();
+    }
+
+    /**
+     * 获取等待处理的条目数量
+     */
+    public int getBacklog() {
+        return pending.size();
+    }
+
+    /**
+     * 获取因时间预算不足而推迟处理的累计次数
+     */
+    public long getDeferredCount() {
+        return deferredCount;
+    }
+
+    /**
+     * 获取已安排的施法者数量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void place(Entry entry) {
+        long delay = Math.min(entry.dueTick - currentTick, MAX_DELAY);
+        long slotTick = currentTick + delay;
+        int level = 0;
+        while (level < WHEEL_LEVELS - 1 && delay >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        Entry sentinel = wheels[level][(int) ((slotTick >> (WHEEL_BITS * level)) & WHEEL_MASK)];
+        entry.prev = sentinel.prev;
+        entry.next = sentinel;
+        sentinel.prev.next = entry;
+        sentinel.prev = entry;
+    }
+
+    private void cascade(Entry sentinel) {
+        Entry entry = sentinel.next;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        while (entry != sentinel) {
+            Entry next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    private void drain(Entry sentinel) {
+        Entry entry = sentinel.next;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        while (entry != sentinel) {
+            Entry next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            if (entry.dueTick > currentTick) {
+                // 超出时间轮范围的条目，重新放回
+                place(entry);
+            } else if (!entry.queued) {
+                entry.queued = true;
+                pending.add(entry);
+            }
+            entry = next;
+        }
+    }
+}
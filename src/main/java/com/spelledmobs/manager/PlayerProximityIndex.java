@@ -0,0 +1,73 @@
+package com.spelledmobs.manager;
+
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.LivingEntity;
+import java.util.List;
+
+/**
+ * 世界中玩家位置的快照，每tick最多构建一次，供所有施法者查询与最近玩家的距离
+ */
+public class PlayerProximityIndex {
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private int count;
+    private long builtTick = Long.MIN_VALUE;
+
+    /**
+     * 确保快照对应当前游戏刻，否则重新记录玩家位置
+     *
+     * @param level 世界
+     */
+    public void update(ServerLevel level) {
+        long gameTime = level.getGameTime();
+        if (builtTick == gameTime) {
+            return;
+        }
+        builtTick = gameTime;
+
+        List<ServerPlayer> players = level.players();
+        if (players.size() > xs.length) {
+            int capacity = Math.max(players.size(), xs.length * 2);
+            xs = new double[capacity];
+            ys = new double[capacity];
+            zs = new double[capacity];
+        }
+
+        count = 0;
+        for (ServerPlayer player : players) {
+            // 旁观者不会让生物进入激活状态
+            if (player.isSpectator() || !player.isAlive()) {
+                continue;
+            }
+            xs[count] = player.getX();
+            ys[count] = player.getY();
+            zs[count] = player.getZ();
+            count++;
+        }
+    }
+
+    /**
+     * 获取实体与最近玩家距离的平方
+     *
+     * @param entity 实体
+     * @return 距离的平方，没有玩家时返回 {@link Double#MAX_VALUE}
+     */
+    public double nearestDistanceSqr(LivingEntity entity) {
+        double x = entity.getX();
+        double y = entity.getY();
+        double z = entity.getZ();
+        double nearest = Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            double dx = xs[i] - x;
+            double dy = ys[i] - y;
+            double dz = zs[i] - z;
+            double distanceSqr = dx * dx + dy * dy + dz * dz;
+            if (distanceSqr < nearest) {
+                nearest = distanceSqr;
+            }
+        }
+        return nearest;
+    }
+}
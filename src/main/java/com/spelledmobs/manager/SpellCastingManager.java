@@ -3,53 +3,71 @@ package com.spelledmobs.manager;
 import com.spelledmobs.SpelledMobs;
 import com.spelledmobs.compatibility.IronsSpellsCompat;
 import com.spelledmobs.config.SpelledMobsConfig;
+import com.spelledmobs.data.ActivationRange;
+import com.spelledmobs.data.EntitySpellProfile;
+import com.spelledmobs.data.SpellCasterCapability;
+import com.spelledmobs.data.SpellCasterState;
 import com.spelledmobs.data.SpellCastingData;
 import com.spelledmobs.data.SpellEntry;
+import com.spelledmobs.data.SpellIds;
+import com.spelledmobs.data.TargetSettings;
+import com.spelledmobs.util.LineOfSightCache;
+import com.spelledmobs.util.SpellRandom;
 import com.spelledmobs.util.TargetFinder;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.Level;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.entity.EntityJoinLevelEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.entity.living.LivingChangeTargetEvent;
 import net.minecraftforge.event.entity.living.LivingDeathEvent;
+import net.minecraftforge.event.entity.living.LivingHurtEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 管理实体的法术施放
  */
 public class SpellCastingManager {
-    private static final double DEFAULT_SEARCH_RADIUS = 16.0;
-    private static final Random RANDOM = new Random();
+    // updateEntitySpellCasting 的返回值，表示施法者没有目标，应进入休眠
+    private static final int DORMANT = -1;
     
     // 上次状态检查时间
     private long lastStatusCheckTime = 0;
     // 状态检查间隔（毫秒）
     private static final long STATUS_CHECK_INTERVAL = 5000; // 5秒检查一次
     
-    // 持续性法术的默认持续时间（刻）
-    private static final Map<String, Integer> SPELL_DURATIONS = new HashMap<>();
-    
     static {
         // 初始化已知持续性法术的持续时间 - 显著增加持续时间避免过快结束
         // 持续时间调整为更长，不少于5秒
-        SPELL_DURATIONS.put("irons_spellbooks:fire_breath", 120);      // 6秒 (增加)
-        SPELL_DURATIONS.put("irons_spellbooks:frost_breath", 120);     // 6秒 (增加)
-        SPELL_DURATIONS.put("irons_spellbooks:electrocute", 100);      // 5秒 (增加)
-        SPELL_DURATIONS.put("irons_spellbooks:gust", 100);             // 5秒 (增加)
-        SPELL_DURATIONS.put("irons_spellbooks:tornado", 160);          // 8秒 (增加)
-        SPELL_DURATIONS.put("irons_spellbooks:ascension", 160);        // 8秒 (增加)
-        SPELL_DURATIONS.put("irons_spellbooks:black_hole", 200);       // 10秒 (增加)
-        SPELL_DURATIONS.put("irons_spellbooks:holy_ray", 120);         // 6秒 (增加)
+        SpellIds.registerContinuous("irons_spellbooks:fire_breath", 120);      // 6秒 (增加)
+        SpellIds.registerContinuous("irons_spellbooks:frost_breath", 120);     // 6秒 (增加)
+        SpellIds.registerContinuous("irons_spellbooks:electrocute", 100);      // 5秒 (增加)
+        SpellIds.registerContinuous("irons_spellbooks:gust", 100);             // 5秒 (增加)
+        SpellIds.registerContinuous("irons_spellbooks:tornado", 160);          // 8秒 (增加)
+        SpellIds.registerContinuous("irons_spellbooks:ascension", 160);        // 8秒 (增加)
+        SpellIds.registerContinuous("irons_spellbooks:black_hole", 200);       // 10秒 (增加)
+        SpellIds.registerContinuous("irons_spellbooks:holy_ray", 120);         // 6秒 (增加)
     }
 
-    // 记录实体的冷却时间
-    private final Map<LivingEntity, Map<String, Integer>> cooldowns = new ConcurrentHashMap<>();
-
     // 实体施法数据
     private final SpellCastingData spellCastingData;
 
+    // 可施法实体登记表
+    private final CasterRegistry casterRegistry;
+
+    // 每个世界的施法者调度器
+    private final Map<ResourceKey<Level>, CasterScheduler> schedulers = new HashMap<>();
+
+    // 每个世界的玩家位置快照
+    private final Map<ResourceKey<Level>, PlayerProximityIndex> playerIndexes = new HashMap<>();
+
     /**
      * 创建法术施放管理器
      * 
@@ -57,6 +75,7 @@ public class SpellCastingManager {
      */
     public SpellCastingManager(SpellCastingData spellCastingData) {
         this.spellCastingData = spellCastingData;
+        this.casterRegistry = new CasterRegistry(spellCastingData);
         // 注册事件监听器
         MinecraftForge.EVENT_BUS.register(this);
     }
@@ -69,9 +88,7 @@ public class SpellCastingManager {
         try {
             LivingEntity entity = event.getEntity();
             if (entity != null) {
-                // 清理冷却时间
-                cooldowns.remove(entity);
-                // 清理施法状态
+                // 清理施法状态，冷却随实体的能力一起释放
                 spellCastingData.cleanupEntityState(entity);
                 
                 if (SpelledMobsConfig.isDebugLoggingEnabled()) {
@@ -84,6 +101,100 @@ public class SpellCastingManager {
         }
     }
 
+    /**
+     * 监听实体加入世界事件，登记可施法实体
+     */
+    @SubscribeEvent
+    public void onEntityJoinLevel(EntityJoinLevelEvent event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel
+                && event.getEntity() instanceof LivingEntity livingEntity
+                && casterRegistry.track(serverLevel, livingEntity)) {
+            scheduleFirstCheck(serverLevel, livingEntity);
+        }
+    }
+
+    /**
+     * 监听实体离开世界事件（包括区块卸载和切换维度），移除可施法实体登记并清理施法状态
+     */
+    @SubscribeEvent
+    public void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel
+                && event.getEntity() instanceof LivingEntity livingEntity) {
+            if (casterRegistry.untrack(serverLevel, livingEntity)) {
+                spellCastingData.cleanupEntityState(livingEntity);
+                getScheduler(serverLevel).remove(livingEntity);
+            }
+        }
+    }
+
+    /**
+     * 监听目标变化事件，唤醒获得新目标的休眠施法者
+     */
+    @SubscribeEvent
+    public void onLivingChangeTarget(LivingChangeTargetEvent event) {
+        if (event.getNewTarget() != null) {
+            wakeCaster(event.getEntity());
+        }
+    }
+
+    /**
+     * 监听受伤事件，唤醒被生物攻击的休眠施法者
+     */
+    @SubscribeEvent
+    public void onLivingHurt(LivingHurtEvent event) {
+        if (event.getSource().getEntity() instanceof LivingEntity) {
+            wakeCaster(event.getEntity());
+        }
+    }
+
+    /**
+     * 唤醒休眠的施法者，在下一刻检查
+     */
+    private void wakeCaster(LivingEntity entity) {
+        if (entity != null && entity.level() instanceof ServerLevel serverLevel) {
+            CasterScheduler scheduler = schedulers.get(serverLevel.dimension());
+            if (scheduler != null && scheduler.isDormant(entity)) {
+                scheduler.schedule(entity, serverLevel.getGameTime() + 1);
+            }
+        }
+    }
+
+    /**
+     * 配置重载后按新配置重建可施法实体登记表
+     *
+     * @param server 服务器
+     */
+    public void reloadCasters(MinecraftServer server) {
+        if (server == null) {
+            return;
+        }
+        casterRegistry.rebuild(server.getAllLevels());
+        LineOfSightCache.clear();
+
+        schedulers.clear();
+        for (ServerLevel level : server.getAllLevels()) {
+            for (LivingEntity entity : casterRegistry.getCasters(level)) {
+                scheduleFirstCheck(level, entity);
+            }
+        }
+    }
+
+    /**
+     * 获取世界的施法者调度器
+     */
+    private CasterScheduler getScheduler(ServerLevel level) {
+        return schedulers.computeIfAbsent(level.dimension(), k -> new CasterScheduler(level.getGameTime()));
+    }
+
+    /**
+     * 安排新登记施法者的首次检查，与原先按 tickCount 对齐检查间隔的节奏保持一致
+     */
+    private void scheduleFirstCheck(ServerLevel level, LivingEntity entity) {
+        int checkInterval = spellCastingData.getEntityCheckInterval(entity);
+        int delay = (checkInterval - entity.tickCount % checkInterval) % checkInterval;
+        getScheduler(level).schedule(entity, level.getGameTime() + delay);
+    }
+
     /**
      * 服务器tick处理，每tick调用一次
      * 
@@ -102,31 +213,142 @@ public class SpellCastingManager {
             checkAllEntityCastingStatus(level);
         }
 
-        // 遍历所有实体
-        int entityCount = 0;
-        int entityWithSpellsCount = 0;
+        // 只处理到期的施法者，上一tick未处理完的施法者排在前面
+        long gameTime = level.getGameTime();
+        CasterScheduler scheduler = getScheduler(level);
+        scheduler.advance(gameTime);
 
-        for (var entity : level.getAllEntities()) {
-            if (entity instanceof LivingEntity livingEntity) {
-                entityCount++;
-                if (spellCastingData.hasSpells(livingEntity)) {
-                    entityWithSpellsCount++;
-                    updateEntitySpellCasting(livingEntity);
-                }
+        // 兜底检查：唤醒已经有目标但没有收到事件的休眠施法者
+        if (gameTime % SpelledMobsConfig.getDormantSweepInterval() == 0) {
+            scheduler.wakeIf(caster -> caster.isAlive() && spellCastingData.getSpellTarget(caster) != null,
+                    gameTime + 1);
+        }
+
+        PlayerProximityIndex playerIndex = playerIndexes.computeIfAbsent(level.dimension(),
+                k -> new PlayerProximityIndex());
+        playerIndex.update(level);
+
+        long budgetNanos = SpelledMobsConfig.getTickBudgetNanos();
+        long startNanos = System.nanoTime();
+        int processedCount = 0;
+
+        CasterScheduler.Entry entry;
+        while ((entry = scheduler.poll()) != null) {
+            LivingEntity livingEntity = entry.getEntity();
+            if (!livingEntity.isAlive()) {
+                scheduler.remove(livingEntity);
+                continue;
+            }
+
+            // 施法者的状态和缓存的法术配置，配置已不包含该实体类型时不再调度
+            SpellCasterState state = SpellCasterCapability.get(livingEntity);
+            EntitySpellProfile profile = state != null ? spellCastingData.getProfile(livingEntity, state) : null;
+            if (profile == null) {
+                scheduler.remove(livingEntity);
+                continue;
+            }
+
+            // 远离所有玩家的施法者跳过检查，过一段时间再看距离
+            ActivationRange activationRange = profile.getActivationRange();
+            double playerDistanceSqr = playerIndex.nearestDistanceSqr(livingEntity);
+            if (!activationRange.isActive(playerDistanceSqr)) {
+                scheduler.schedule(livingEntity, gameTime + SpelledMobsConfig.getInactiveRecheckInterval());
+                continue;
+            }
+
+            processedCount++;
+
+            int nextDelay;
+            try {
+                nextDelay = updateEntitySpellCasting(livingEntity, state, profile, gameTime);
+            } catch (Exception e) {
+                // 出错的施法者已经从队列中取出，必须重新调度，否则不会再被检查
+                SpelledMobs.LOGGER.error("[SpelledMobs] 处理实体 {} 的法术施放时发生错误",
+                        livingEntity.getName().getString(), e);
+                nextDelay = profile.getCheckInterval();
+            }
+            // 降频范围内的施法者按较低频率检查
+            if (nextDelay > 0 && !activationRange.isFullyActive(playerDistanceSqr)) {
+                nextDelay *= SpelledMobsConfig.getReducedActivationMultiplier();
+            }
+            if (nextDelay == DORMANT) {
+                scheduler.park(livingEntity);
+            } else if (nextDelay > 0) {
+                scheduler.schedule(livingEntity, gameTime + nextDelay);
+            } else {
+                scheduler.remove(livingEntity);
+            }
+
+            // 时间预算用完，剩余的施法者留到下一tick
+            if (budgetNanos > 0 && System.nanoTime() - startNanos >= budgetNanos) {
+                scheduler.deferRemaining();
+                break;
             }
         }
 
+        // 增量清理漏掉离开事件的失效施法者
+        int cleanupBatchSize = SpelledMobsConfig.getCleanupBatchSize();
+        if (cleanupBatchSize > 0) {
+            casterRegistry.sweep(level, cleanupBatchSize, scheduler::remove);
+        }
+
         // 每100刻（5秒）记录一次统计信息
-        if (level.getGameTime() % 100 == 0 && entityWithSpellsCount > 0) {
+        if (gameTime % 100 == 0 && scheduler.size() > 0) {
             SpelledMobs.LOGGER.info(
-                    "[SpelledMobs] [施法统计] 世界: {}, 检查生物: {}, 可施法生物: {}",
-                    level.dimension().location(), entityCount, entityWithSpellsCount);
+                    "[SpelledMobs] [施法统计] 世界: {}, 可施法生物: {}, 休眠: {}, 本刻检查: {}, 积压: {}, 累计推迟: {}, 施法状态: {}",
+                    level.dimension().location(), scheduler.size(), scheduler.getDormantCount(), processedCount,
+                    scheduler.getBacklog(), scheduler.getDeferredCount(), SpellCasterCapability.getLiveStateCount());
         }
-
-        // 清理不再存在的实体的冷却数据
-        cooldowns.entrySet().removeIf(entry -> !entry.getKey().isAlive());
     }
     
+    /**
+     * 查找法术目标，优先沿用上一次的目标
+     * 上一次的目标仍然存活、在范围内且能看到时直接使用，否则或超过重新搜索间隔时才完整搜索
+     *
+     * @param entity         施法者
+     * @param state          施法状态
+     * @param targetSettings 目标选择设置
+     * @param gameTime       当前游戏刻
+     * @return 目标，没有找到时返回null
+     */
+    private LivingEntity findSpellTarget(LivingEntity entity, SpellCasterState state, TargetSettings targetSettings,
+            long gameTime) {
+        LivingEntity lastTarget = state.getLastTarget();
+        int reacquireInterval = SpelledMobsConfig.getTargetReacquireInterval();
+        if (lastTarget != null && gameTime - state.getLastTargetSearchTick() < reacquireInterval
+                && TargetFinder.revalidateTarget(entity, lastTarget, targetSettings.getSearchRadius())) {
+            return lastTarget;
+        }
+
+        LivingEntity target = TargetFinder.findTarget(entity, targetSettings.getSearchRadius(),
+                targetSettings.getPriority(), targetSettings.isPlayersFirst());
+        state.setLastTarget(target, gameTime);
+        return target;
+    }
+
+    /**
+     * 获取各世界的施法调度统计，用于命令输出
+     *
+     * @param server 服务器
+     * @return 每个世界一行的统计信息
+     */
+    public List<String> getStatistics(MinecraftServer server) {
+        List<String> lines = new ArrayList<>();
+        for (ServerLevel level : server.getAllLevels()) {
+            CasterScheduler scheduler = schedulers.get(level.dimension());
+            if (scheduler == null) {
+                continue;
+            }
+            lines.add(String.format("%s: 可施法生物 %d, 休眠 %d, 积压 %d, 累计推迟 %d",
+                    level.dimension().location(), scheduler.size(), scheduler.getDormantCount(),
+                    scheduler.getBacklog(), scheduler.getDeferredCount()));
+        }
+        lines.add(String.format("施法状态: %d", SpellCasterCapability.getLiveStateCount()));
+        lines.add(LineOfSightCache.getStatistics());
+        lines.add(TargetFinder.getValidationStatistics());
+        return lines;
+    }
+
     /**
      * 检查所有实体的施法状态，用于调试
      */
@@ -138,15 +360,13 @@ public class SpellCastingManager {
         SpelledMobs.LOGGER.debug("[SpelledMobs] ==== 开始检查所有实体施法状态 ====");
         int castingCount = 0;
         
-        for (var entity : level.getAllEntities()) {
-            if (entity instanceof LivingEntity livingEntity) {
-                if (spellCastingData.isCasting(livingEntity)) {
-                    castingCount++;
-                    String spellId = spellCastingData.getCurrentSpellId(livingEntity);
-                    if (spellId != null) {
-                        SpelledMobs.LOGGER.debug("[SpelledMobs] 实体 {} 正在施放法术: {}", 
-                            livingEntity.getName().getString(), spellId);
-                    }
+        for (LivingEntity livingEntity : casterRegistry.getCasters(level)) {
+            if (spellCastingData.isCasting(livingEntity)) {
+                castingCount++;
+                String spellId = spellCastingData.getCurrentSpellId(livingEntity);
+                if (spellId != null) {
+                    SpelledMobs.LOGGER.debug("[SpelledMobs] 实体 {} 正在施放法术: {}", 
+                        livingEntity.getName().getString(), spellId);
                 }
             }
         }
@@ -157,22 +377,21 @@ public class SpellCastingManager {
     /**
      * 更新实体的法术施放状态
      * 
-     * @param entity 需要更新的实体
+     * @param entity   需要更新的实体
+     * @param state    实体的施法状态
+     * @param profile  实体的法术配置
+     * @param gameTime 当前游戏刻
+     * @return 距下一次检查的刻数，0表示不再需要检查，{@link #DORMANT} 表示没有目标需要休眠
      */
-    private void updateEntitySpellCasting(LivingEntity entity) {
-        // 检查是否已加载Iron's Spells
-        if (!IronsSpellsCompat.isIronsSpellsLoaded() || !IronsSpellsCompat.isInitialized()) {
-            return;
-        }
+    private int updateEntitySpellCasting(LivingEntity entity, SpellCasterState state, EntitySpellProfile profile,
+            long gameTime) {
+        // 本次决策使用的随机数，开启确定性随机时按实体和游戏刻播种
+        SpellRandom random = SpellRandom.forDecision(entity, gameTime);
 
         // 获取实体名称，用于日志
         String entityName = entity.getName().getString();
         String entityType = entity.getType().toString();
-
-        // 检查实体是否可以施法
-        if (!spellCastingData.hasSpells(entity)) {
-            return;
-        }
+        int checkInterval = profile.getCheckInterval();
 
         // 检查实体是否正在施放法术，正在施放时不允许施放新法术
         boolean casting = spellCastingData.isCasting(entity);
@@ -185,42 +404,43 @@ public class SpellCastingManager {
         }
         
         if (casting) {
-            return;
+            return checkInterval;
         }
 
-        // 获取实体的冷却时间Map
-        Map<String, Integer> entityCooldowns = cooldowns.computeIfAbsent(entity, k -> new HashMap<>());
-
-        // 更新所有法术的冷却时间
-        entityCooldowns.replaceAll((spell, cooldown) -> Math.max(0, cooldown - 1));
+        // 没有目标的施法者进入休眠，等待仇恨或受伤事件唤醒
+        if (spellCastingData.getSpellTarget(entity) == null) {
+            return DORMANT;
+        }
 
         // 检查是否有法术可以施放
-        SpellEntry spellEntry = spellCastingData.getNextSpellToCast(entity);
+        SpellEntry spellEntry = spellCastingData.selectSpellToCast(entity, profile);
         if (spellEntry == null) {
             if (SpelledMobsConfig.isDebugLoggingEnabled() && entity.level().getGameTime() % 100 == 0) {
                 SpelledMobs.LOGGER.debug("[SpelledMobs] [{}:{}] 没有可施放的法术", entityType, entityName);
             }
-            return;
+            return nextCheckDelay(state, profile, gameTime, checkInterval);
         }
 
         // 检查法术冷却时间
-        if (entityCooldowns.getOrDefault(spellEntry.getSpellId(), 0) > 0) {
-            if (SpelledMobsConfig.isDebugLoggingEnabled() && entity.level().getGameTime() % 100 == 0) {
+        int spellIndex = spellEntry.getSpellIndex();
+        long cooldownEnd = state.getCooldownEnd(spellIndex);
+        if (cooldownEnd > gameTime) {
+            if (SpelledMobsConfig.isDebugLoggingEnabled() && gameTime % 100 == 0) {
                 SpelledMobs.LOGGER.debug("[SpelledMobs] [{}:{}] 法术 {} 正在冷却中: {} tick",
                         entityType, entityName,
                         spellEntry.getSpellId(),
-                        entityCooldowns.get(spellEntry.getSpellId()));
+                        cooldownEnd - gameTime);
             }
-            return;
+            return nextCheckDelay(state, profile, gameTime, checkInterval);
         }
 
         // 查找目标
-        LivingEntity target = TargetFinder.findTarget(entity, DEFAULT_SEARCH_RADIUS);
+        LivingEntity target = findSpellTarget(entity, state, profile.getTargetSettings(), gameTime);
         if (target == null) {
             if (SpelledMobsConfig.isDebugLoggingEnabled() && entity.level().getGameTime() % 100 == 0) {
                 SpelledMobs.LOGGER.debug("[SpelledMobs] [{}:{}] 未找到目标，无法施法", entityType, entityName);
             }
-            return;
+            return checkInterval;
         }
 
         String targetName = target.getName().getString();
@@ -234,13 +454,13 @@ public class SpellCastingManager {
         // 确定法术等级
         int level = spellEntry.getMinLevel();
         if (spellEntry.getMaxLevel() > spellEntry.getMinLevel()) {
-            level += RANDOM.nextInt(spellEntry.getMaxLevel() - spellEntry.getMinLevel() + 1);
+            level += random.nextInt(spellEntry.getMaxLevel() - spellEntry.getMinLevel() + 1);
         }
 
         // 检查是否是持续性法术
         String spellId = spellEntry.getSpellId();
-        boolean isContinuousSpell = SPELL_DURATIONS.containsKey(spellId);
-        int duration = isContinuousSpell ? SPELL_DURATIONS.get(spellId) : 0;
+        boolean isContinuousSpell = SpellIds.isContinuous(spellIndex);
+        int duration = SpellIds.getContinuousDuration(spellIndex);
         
         // 打印调试信息
         if (SpelledMobsConfig.isDebugLoggingEnabled()) {
@@ -249,17 +469,17 @@ public class SpellCastingManager {
         }
 
         // 施放法术
-        boolean success = IronsSpellsCompat.castSpell(entity, target, entity.level(), spellEntry.getSpellId(), level);
+        boolean success = IronsSpellsCompat.castSpell(entity, target, entity.level(), spellIndex, level);
 
         if (success) {
             // 设置冷却时间
             int originalCooldown = spellEntry.getMinCastTime();
             if (spellEntry.getMaxCastTime() > spellEntry.getMinCastTime()) {
-                originalCooldown += RANDOM.nextInt(spellEntry.getMaxCastTime() - spellEntry.getMinCastTime() + 1);
+                originalCooldown += random.nextInt(spellEntry.getMaxCastTime() - spellEntry.getMinCastTime() + 1);
             }
 
             int cooldown = originalCooldown / 2;
-            entityCooldowns.put(spellEntry.getSpellId(), cooldown);
+            state.setCooldownEnd(spellIndex, gameTime + cooldown);
             
             // 如果是持续性法术，记录施法状态
             if (isContinuousSpell) {
@@ -294,6 +514,26 @@ public class SpellCastingManager {
                     entityType, entityName,
                     spellEntry.getSpellId());
         }
+
+        return nextCheckDelay(state, profile, gameTime, checkInterval);
+    }
+
+    /**
+     * 计算距下一次检查的刻数
+     * 所有法术都在冷却时，直接等到最早的冷却结束，否则按检查间隔
+     */
+    private int nextCheckDelay(SpellCasterState state, EntitySpellProfile profile, long gameTime, int checkInterval) {
+        long earliestEnd = Long.MAX_VALUE;
+        for (SpellEntry spell : profile.getSpells()) {
+            earliestEnd = Math.min(earliestEnd, state.getCooldownEnd(spell.getSpellIndex()));
+            if (earliestEnd - gameTime <= checkInterval) {
+                return checkInterval;
+            }
+        }
+        if (earliestEnd == Long.MAX_VALUE) {
+            return checkInterval;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, earliestEnd - gameTime);
     }
 
     /**
@@ -324,13 +564,14 @@ public class SpellCastingManager {
                 entity.getName().getString());
         }
 
-        boolean success = IronsSpellsCompat.castSpell(entity, target, entity.level(), spellId, level);
+        int spellIndex = SpellIds.intern(spellId);
+        boolean success = IronsSpellsCompat.castSpell(entity, target, entity.level(), spellIndex, level);
 
         if (success) {
             // 检查是否是持续性法术
-            if (SPELL_DURATIONS.containsKey(spellId)) {
+            if (SpellIds.isContinuous(spellIndex)) {
                 // 获取法术持续时间
-                int duration = SPELL_DURATIONS.get(spellId);
+                int duration = SpellIds.getContinuousDuration(spellIndex);
                 // 记录施法状态
                 spellCastingData.startCasting(entity, spellId, level, duration);
                 
@@ -360,7 +601,10 @@ public class SpellCastingManager {
      * @param entity 实体
      */
     public void clearCooldowns(LivingEntity entity) {
-        cooldowns.remove(entity);
+        SpellCasterState state = SpellCasterCapability.get(entity);
+        if (state != null) {
+            state.clearCooldowns();
+        }
         // 同时清理施法状态
         spellCastingData.cleanupEntityState(entity);
     }
@@ -373,7 +617,12 @@ public class SpellCastingManager {
      * @return 冷却时间（刻）
      */
     public int getSpellCooldown(LivingEntity entity, String spellId) {
-        return cooldowns.getOrDefault(entity, new HashMap<>()).getOrDefault(spellId, 0);
+        SpellCasterState state = SpellCasterCapability.get(entity);
+        if (state == null) {
+            return 0;
+        }
+        long remaining = state.getCooldownEnd(SpellIds.intern(spellId)) - entity.level().getGameTime();
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, remaining));
     }
 
     /**
@@ -384,8 +633,10 @@ public class SpellCastingManager {
      * @param cooldown 冷却时间（刻）
      */
     public void setSpellCooldown(LivingEntity entity, String spellId, int cooldown) {
-        Map<String, Integer> entityCooldowns = cooldowns.computeIfAbsent(entity, k -> new HashMap<>());
-        entityCooldowns.put(spellId, Math.max(0, cooldown));
+        SpellCasterState state = SpellCasterCapability.get(entity);
+        if (state != null) {
+            state.setCooldownEnd(SpellIds.intern(spellId), entity.level().getGameTime() + Math.max(0, cooldown));
+        }
     }
 
     /**
@@ -395,7 +646,7 @@ public class SpellCastingManager {
      * @return 是否是持续性法术
      */
     public static boolean isContinuousSpell(String spellId) {
-        return SPELL_DURATIONS.containsKey(spellId);
+        return SpellIds.isContinuous(SpellIds.intern(spellId));
     }
 
     /**
@@ -405,6 +656,6 @@ public class SpellCastingManager {
      * @return 持续时间（刻），如果不是持续性法术则返回0
      */
     public static int getSpellDuration(String spellId) {
-        return SPELL_DURATIONS.getOrDefault(spellId, 0);
+        return SpellIds.getContinuousDuration(SpellIds.intern(spellId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.spelledmobs.util;
+
+import com.spelledmobs.config.SpelledMobsConfig;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+
+/**
+ * 视线检查结果缓存
+ * 按（观察者, 目标）记录最近一次射线检查的结果，在有效期内直接复用；
+ * 每tick的射线检查次数有全局上限，用完后未缓存的目标视为看不见，留到之后的tick再检查
+ * 只应在服务器线程使用
+ */
+public final class LineOfSightCache {
+    // 缓存值的最低位表示是否可见，其余位是过期的游戏刻
+    private static final Long2LongOpenHashMap CACHE = new Long2LongOpenHashMap();
+
+    // 缓存条目超过该数量时在新的tick清理过期条目
+    private static final int PURGE_THRESHOLD = 1024;
+
+    private static long currentTick = Long.MIN_VALUE;
+    private static int raycastsThisTick;
+
+    private static long hitCount;
+    private static long raycastCount;
+    private static long budgetExhaustedCount;
+
+    private LineOfSightCache() {
+    }
+
+    /**
+     * 判断观察者是否能看到目标，优先使用缓存的结果
+     *
+     * @param viewer 观察者
+     * @param target 目标
+     * @return 能看到时返回true；本tick射线检查次数用完且没有缓存时返回false
+     */
+    public static boolean hasLineOfSight(LivingEntity viewer, LivingEntity target) {
+        long gameTime = viewer.level().getGameTime();
+        startTick(gameTime);
+
+        long key = key(viewer, target);
+        long cached = CACHE.get(key);
+        // 默认值0对应已过期，不需要额外判断是否存在
+        if ((cached >> 1) > gameTime) {
+            hitCount++;
+            return (cached & 1L) != 0;
+        }
+
+        int budget = SpelledMobsConfig.getRaycastBudgetPerTick();
+        if (budget > 0 && raycastsThisTick >= budget) {
+            budgetExhaustedCount++;
+            return false;
+        }
+        raycastsThisTick++;
+        raycastCount++;
+
+        boolean visible = viewer instanceof Mob mob
+                ? mob.getSensing().hasLineOfSight(target)
+                : viewer.hasLineOfSight(target);
+        long expiresAt = gameTime + Math.max(1, SpelledMobsConfig.getLineOfSightCacheTicks());
+        CACHE.put(key, (expiresAt << 1) | (visible ? 1L : 0L));
+        return visible;
+    }
+
+    /**
+     * 进入新的tick时重置射线检查计数，并在缓存过大时清理过期条目
+     */
+    private static void startTick(long gameTime) {
+        if (currentTick == gameTime) {
+            return;
+        }
+        currentTick = gameTime;
+        raycastsThisTick = 0;
+
+        if (CACHE.size() > PURGE_THRESHOLD) {
+            ObjectIterator<Long2LongMap.Entry> iterator = CACHE.long2LongEntrySet().fastIterator();
+            while (iterator.hasNext()) {
+                if ((iterator.next().getLongValue() >> 1) <= gameTime) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 观察者和目标的实体ID组成的缓存键
+     */
+    private static long key(LivingEntity viewer, LivingEntity target) {
+        return ((long) viewer.getId() << 32) | (target.getId() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 清空缓存，重新加载配置或世界卸载时使用
+     */
+    public static void clear() {
+        CACHE.clear();
+        currentTick = Long.MIN_VALUE;
+        raycastsThisTick = 0;
+    }
+
+    /**
+     * 获取缓存统计信息，用于命令输出
+     */
+    public static String getStatistics() {
+        return String.format("视线缓存: 条目 %d, 命中 %d, 射线检查 %d, 预算用尽 %d",
+                CACHE.size(), hitCount, raycastCount, budgetExhaustedCount);
+    }
+}
@@ -0,0 +1,219 @@
+package com.spelledmobs.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 世界中存活生物的空间网格，按16格的区块段划分
+ * 只记录本tick被查询到的区块段：查询碰到尚未记录的区块段时，用一次 {@code getEntitiesOfClass} 把这些区块段一起记录下来，
+ * 同一tick内附近的其他施法者直接复用，不再各自查询；每个新的tick清空重来，不会遍历整个世界的实体
+ * 只应在服务器线程使用
+ */
+public class LivingEntityGrid {
+    private static final Map<ResourceKey<Level>, LivingEntityGrid> GRIDS = new HashMap<>();
+
+    // 生物按所在位置记录，碰撞箱会超出所在区块段，按范围查询时向外多查这么多格
+    // 与原版实体区块段查询使用的余量相同，结果与 getEntitiesOfClass 一致（碰撞箱更大的实体两者都会漏掉）
+    private static final double ENTITY_EXTENT = 2.0;
+
+    private final ServerLevel level;
+    // 本tick已记录的区块段，没有生物的区块段对应空列表
+    private final Long2ObjectOpenHashMap<List<LivingEntity>> cells = new Long2ObjectOpenHashMap<>();
+    // 清空后留待复用的列表
+    private final List<List<LivingEntity>> freeLists = new ArrayList<>();
+    // 正在记录的区块段，避免把已记录区块段的生物重复加入
+    private final LongOpenHashSet loading = new LongOpenHashSet();
+    private long currentTick = Long.MIN_VALUE;
+
+    private LivingEntityGrid(ServerLevel level) {
+        this.level = level;
+    }
+
+    /**
+     * 获取世界当前tick的生物网格
+     *
+     * @param level 世界
+     * @return 生物网格
+     */
+    public static LivingEntityGrid get(ServerLevel level) {
+        LivingEntityGrid grid = GRIDS.get(level.dimension());
+        if (grid == null || grid.level != level) {
+            grid = new LivingEntityGrid(level);
+            GRIDS.put(level.dimension(), grid);
+        }
+        grid.startTick();
+        return grid;
+    }
+
+    /**
+     * 进入新的tick时清空上一tick记录的区块段
+     */
+    private void startTick() {
+        long gameTime = level.getGameTime();
+        if (currentTick == gameTime) {
+            return;
+        }
+        currentTick = gameTime;
+
+        for (List<LivingEntity> cell : cells.values()) {
+            cell.clear();
+            freeLists.add(cell);
+        }
+        cells.clear();
+    }
+
+    /**
+     * 确保区块段范围内的所有区块段都已记录
+     * 尚未记录的区块段合并为一个方框，只调用一次 {@code getEntitiesOfClass}
+     */
+    private void ensureLoaded(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        int loadMinX = Integer.MAX_VALUE, loadMinY = Integer.MAX_VALUE, loadMinZ = Integer.MAX_VALUE;
+        int loadMaxX = Integer.MIN_VALUE, loadMaxY = Integer.MIN_VALUE, loadMaxZ = Integer.MIN_VALUE;
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    if (!cells.containsKey(SectionPos.asLong(cx, cy, cz))) {
+                        loadMinX = Math.min(loadMinX, cx);
+                        loadMinY = Math.min(loadMinY, cy);
+                        loadMinZ = Math.min(loadMinZ, cz);
+                        loadMaxX = Math.max(loadMaxX, cx);
+                        loadMaxY = Math.max(loadMaxY, cy);
+                        loadMaxZ = Math.max(loadMaxZ, cz);
+                    }
+                }
+            }
+        }
+        if (loadMinX == Integer.MAX_VALUE) {
+            return;
+        }
+
+        // 为方框内尚未记录的区块段准备空列表
+        loading.clear();
+        for (int cx = loadMinX; cx <= loadMaxX; cx++) {
+            for (int cy = loadMinY; cy <= loadMaxY; cy++) {
+                for (int cz = loadMinZ; cz <= loadMaxZ; cz++) {
+                    long key = SectionPos.asLong(cx, cy, cz);
+                    if (!cells.containsKey(key)) {
+                        cells.put(key, freeLists.isEmpty() ? new ArrayList<>() : freeLists.remove(freeLists.size() - 1));
+                        loading.add(key);
+                    }
+                }
+            }
+        }
+
+        // 位置在方框内的生物，其碰撞箱必然与方框相交，因此一次查询就能得到这些区块段中的全部生物
+        AABB box = new AABB(SectionPos.sectionToBlockCoord(loadMinX), SectionPos.sectionToBlockCoord(loadMinY),
+                SectionPos.sectionToBlockCoord(loadMinZ), SectionPos.sectionToBlockCoord(loadMaxX + 1),
+                SectionPos.sectionToBlockCoord(loadMaxY + 1), SectionPos.sectionToBlockCoord(loadMaxZ + 1));
+        for (LivingEntity entity : level.getEntitiesOfClass(LivingEntity.class, box, LivingEntity::isAlive)) {
+            long key = SectionPos.asLong(SectionPos.blockToSectionCoord(entity.getX()),
+                    SectionPos.blockToSectionCoord(entity.getY()),
+                    SectionPos.blockToSectionCoord(entity.getZ()));
+            // 碰撞箱伸入方框、位置在方框外的生物属于其他区块段，不在这里记录
+            if (loading.contains(key)) {
+                cells.get(key).add(entity);
+            }
+        }
+    }
+
+    /**
+     * 统计以某点为中心、指定半径内的存活生物数量
+     *
+     * @param x       中心X坐标
+     * @param y       中心Y坐标
+     * @param z       中心Z坐标
+     * @param radius  半径
+     * @param type    生物类型，为null时统计所有类型
+     * @param exclude 不计入的实体（通常是施法者自己），可以为null
+     * @param limit   数到该数量时提前返回
+     * @return 生物数量，不超过 limit
+     */
+    public int count(double x, double y, double z, double radius, EntityType<?> type, Entity exclude, int limit) {
+        if (limit <= 0) {
+            return 0;
+        }
+
+        double radiusSqr = radius * radius;
+        int minX = SectionPos.blockToSectionCoord(x - radius);
+        int maxX = SectionPos.blockToSectionCoord(x + radius);
+        int minY = SectionPos.blockToSectionCoord(y - radius);
+        int maxY = SectionPos.blockToSectionCoord(y + radius);
+        int minZ = SectionPos.blockToSectionCoord(z - radius);
+        int maxZ = SectionPos.blockToSectionCoord(z + radius);
+        ensureLoaded(minX, minY, minZ, maxX, maxY, maxZ);
+
+        int count = 0;
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    List<LivingEntity> cell = cells.get(SectionPos.asLong(cx, cy, cz));
+                    for (int i = 0, size = cell.size(); i < size; i++) {
+                        LivingEntity entity = cell.get(i);
+                        if (entity == exclude || (type != null && entity.getType() != type) || !entity.isAlive()) {
+                            continue;
+                        }
+                        double dx = entity.getX() - x;
+                        double dy = entity.getY() - y;
+                        double dz = entity.getZ() - z;
+                        if (dx * dx + dy * dy + dz * dz <= radiusSqr && ++count >= limit) {
+                            return count;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 收集碰撞箱与给定范围相交的存活生物，结果与 {@code Level.getEntitiesOfClass} 相同
+     *
+     * @param box     查询范围
+     * @param type    生物的Java类型
+     * @param exclude 不收集的实体（通常是施法者自己），可以为null
+     * @param filter  额外的过滤条件，可以为null
+     * @param output  结果列表，找到的生物追加到末尾
+     */
+    public <T extends LivingEntity> void collect(AABB box, Class<T> type, Entity exclude,
+            Predicate<? super T> filter, List<T> output) {
+        int minX = SectionPos.blockToSectionCoord(box.minX - ENTITY_EXTENT);
+        int maxX = SectionPos.blockToSectionCoord(box.maxX + ENTITY_EXTENT);
+        int minY = SectionPos.blockToSectionCoord(box.minY - ENTITY_EXTENT);
+        int maxY = SectionPos.blockToSectionCoord(box.maxY + ENTITY_EXTENT);
+        int minZ = SectionPos.blockToSectionCoord(box.minZ - ENTITY_EXTENT);
+        int maxZ = SectionPos.blockToSectionCoord(box.maxZ + ENTITY_EXTENT);
+        ensureLoaded(minX, minY, minZ, maxX, maxY, maxZ);
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    List<LivingEntity> cell = cells.get(SectionPos.asLong(cx, cy, cz));
+                    for (int i = 0, size = cell.size(); i < size; i++) {
+                        LivingEntity entity = cell.get(i);
+                        if (entity == exclude || !type.isInstance(entity)
+                                || !entity.getBoundingBox().intersects(box)) {
+                            continue;
+                        }
+                        T candidate = type.cast(entity);
+                        if (filter == null || filter.test(candidate)) {
+                            output.add(candidate);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.spelledmobs.util;
+
+import com.spelledmobs.config.SpelledMobsConfig;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.LivingEntity;
+import java.util.Random;
+
+/**
+ * 施法决策使用的随机数生成器，基于 SplitMix64
+ * 施法决策共用一个实例，生成随机数时不需要原子操作；开启确定性随机后，每次决策前按世界种子、实体ID和游戏刻重新播种，
+ * 同样的战斗可以完整重放
+ * 不是线程安全的，只应在服务器线程使用
+ */
+public final class SpellRandom extends Random {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final SpellRandom CURRENT = new SpellRandom(System.nanoTime() * GOLDEN_GAMMA);
+
+    private long state;
+
+    /**
+     * 创建随机数生成器
+     *
+     * @param seed 种子
+     */
+    public SpellRandom(long seed) {
+        // 父类构造器会调用 setSeed，此时本类字段尚未初始化，这里重新设置一次
+        super(0L);
+        this.state = seed;
+    }
+
+    /**
+     * 获取施法决策共用的随机数生成器
+     */
+    public static SpellRandom current() {
+        return CURRENT;
+    }
+
+    /**
+     * 获取施法决策共用的随机数生成器，用于一次施法决策
+     * 开启确定性随机时按世界种子、实体ID和游戏刻重新播种
+     *
+     * @param entity   施法者
+     * @param gameTime 当前游戏刻
+     * @return 共用的随机数生成器
+     */
+    public static SpellRandom forDecision(LivingEntity entity, long gameTime) {
+        SpellRandom random = CURRENT;
+        if (SpelledMobsConfig.isDeterministicRandom()) {
+            long levelSeed = entity.level() instanceof ServerLevel serverLevel ? serverLevel.getSeed() : 0L;
+            random.setSeed(mix64(levelSeed + mix64(entity.getId() + mix64(gameTime))));
+        }
+        return random;
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        this.state = seed;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    @Override
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * SplitMix64 的混合函数
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,11 +1,17 @@
 package com.spelledmobs.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.function.Predicate;
 
+import com.spelledmobs.config.SpelledMobsConfig;
+
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.LivingEntity;
 import net.minecraft.world.entity.Mob;
 import net.minecraft.world.entity.player.Player;
@@ -13,8 +19,35 @@ import net.minecraft.world.phys.AABB;
 
 /**
  * 目标查找器工具类，用于查找附近的实体目标
+ * 服务端的候选目标来自每tick共享的 {@link LivingEntityGrid}，附近的多个施法者不再各自扫描实体区段
+ * 候选目标先按优先级和距离排序，再依次检查视线，找到可见的目标就停止，视线结果由 {@link LineOfSightCache} 缓存
  */
 public class TargetFinder {
+    /**
+     * 目标验证阶段，按检查顺序排列，开销低的在前，视线检查最后且只在排序后进行
+     */
+    private enum ValidationStage {
+        IDENTITY("自身"),
+        ALIVE("死亡"),
+        GAME_MODE("创造/旁观"),
+        DISTANCE("距离"),
+        ALLY("队友"),
+        TARGET_LOCK("已有其他目标"),
+        LINE_OF_SIGHT("视线");
+
+        private final String displayName;
+
+        ValidationStage(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    // 各验证阶段拒绝目标的次数，只在服务器线程更新
+    private static final long[] REJECTIONS = new long[ValidationStage.values().length];
+
+    // 目标优先级：玩家优先，然后是生物
+    private static final Comparator<LivingEntity> TARGET_PRIORITY = Comparator
+            .comparingInt(e -> (e instanceof Player) ? 0 : ((e instanceof Mob) ? 1 : 2));
 
     /**
      * 查找给定实体周围的最适合目标
@@ -24,31 +57,133 @@ public class TargetFinder {
      * @return 找到的目标实体，如果没有找到则返回null
      */
     public static LivingEntity findTarget(LivingEntity entity, double range) {
+        return findFirstVisible(entity, range, TARGET_PRIORITY, null);
+    }
+
+    /**
+     * 按给定的优先级查找给定实体周围的最适合目标，同一优先级的目标按距离选择
+     *
+     * @param entity   寻找目标的实体
+     * @param range    查找半径
+     * @param priority 目标优先级
+     * @return 找到的目标实体，如果没有找到则返回null
+     */
+    public static LivingEntity findTarget(LivingEntity entity, double range, Comparator<LivingEntity> priority) {
+        return findFirstVisible(entity, range, priority, null);
+    }
+
+    /**
+     * 按给定的优先级查找目标，玩家排在第一位时先只检查世界中的玩家
+     * 玩家数量远少于生物，有可见的玩家时不需要查询周围的所有实体；没有时再按一般方式查找其他目标
+     *
+     * @param entity       寻找目标的实体
+     * @param range        查找半径
+     * @param priority     目标优先级
+     * @param playersFirst 玩家是否排在第一位
+     * @return 找到的目标实体，如果没有找到则返回null
+     */
+    public static LivingEntity findTarget(LivingEntity entity, double range, Comparator<LivingEntity> priority,
+            boolean playersFirst) {
+        if (!playersFirst || entity == null || !(entity.level() instanceof ServerLevel serverLevel)) {
+            return findFirstVisible(entity, range, priority, null);
+        }
+
+        LivingEntity player = findVisiblePlayer(entity, serverLevel, range);
+        if (player != null) {
+            return player;
+        }
+        // 范围内的玩家都已检查过，一般查找中跳过玩家
+        return findFirstVisible(entity, range, priority, target -> !(target instanceof Player));
+    }
+
+    /**
+     * 查找范围内最近的可见玩家
+     *
+     * @param entity 寻找目标的实体
+     * @param level  世界
+     * @param range  查找半径
+     * @return 最近的可见玩家，如果没有找到则返回null
+     */
+    private static LivingEntity findVisiblePlayer(LivingEntity entity, ServerLevel level, double range) {
+        List<? extends Player> players = level.players();
+        if (players.isEmpty()) {
+            return null;
+        }
+
+        AABB boundingBox = entity.getBoundingBox().inflate(range);
+        double rangeSqr = range * range;
+        List<Player> nearbyPlayers = new ArrayList<>();
+        for (int i = 0, size = players.size(); i < size; i++) {
+            Player player = players.get(i);
+            if (player.getBoundingBox().intersects(boundingBox) && isCandidate(entity, player, rangeSqr)) {
+                nearbyPlayers.add(player);
+            }
+        }
+
+        if (nearbyPlayers.size() > 1) {
+            nearbyPlayers.sort(Comparator.comparingDouble(p -> p.distanceToSqr(entity)));
+        }
+        for (Player player : nearbyPlayers) {
+            if (canSee(entity, player)) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 重新验证之前的目标是否仍然可用：存活、在搜索范围内且能看到
+     * 比完整搜索便宜得多，视线结果来自 {@link LineOfSightCache}
+     *
+     * @param entity 寻找目标的实体
+     * @param target 之前的目标
+     * @param range  查找半径
+     * @return 如果目标仍然可用则返回true
+     */
+    public static boolean revalidateTarget(LivingEntity entity, LivingEntity target, double range) {
+        if (entity == null || target == null || target.isRemoved() || target.level() != entity.level()) {
+            return false;
+        }
+        return isCandidate(entity, target, range * range) && canSee(entity, target);
+    }
+
+    /**
+     * 查找排序后第一个可见的目标
+     *
+     * @param entity   寻找目标的实体
+     * @param range    查找半径
+     * @param priority 距离之前的排序规则，为null时只按距离
+     * @param filter   额外的过滤条件，可以为null
+     * @return 找到的目标实体，如果没有找到则返回null
+     */
+    private static LivingEntity findFirstVisible(LivingEntity entity, double range,
+            Comparator<LivingEntity> priority, Predicate<LivingEntity> filter) {
         if (entity == null || entity.level() == null) {
             return null;
         }
 
         // 创建一个以实体为中心的AABB
         AABB boundingBox = entity.getBoundingBox().inflate(range);
+        double rangeSqr = range * range;
 
-        // 获取边界内的所有LivingEntity
-        List<LivingEntity> nearbyEntities = entity.level().getEntitiesOfClass(
-                LivingEntity.class,
-                boundingBox,
-                target -> isValidTarget(entity, target));
+        // 获取边界内的所有LivingEntity，此时还不检查视线
+        List<LivingEntity> nearbyEntities = getCandidates(entity, boundingBox, LivingEntity.class,
+                target -> isCandidate(entity, target, rangeSqr) && (filter == null || filter.test(target)));
 
         // 如果没有找到任何目标，返回null
         if (nearbyEntities.isEmpty()) {
             return null;
         }
 
-        // 按照优先级和距离排序 - 玩家优先，然后是生物
-        Optional<LivingEntity> target = nearbyEntities.stream()
-                .min(Comparator
-                        .<LivingEntity>comparingInt(e -> (e instanceof Player) ? 0 : ((e instanceof Mob) ? 1 : 2))
-                        .thenComparingDouble(e -> e.distanceToSqr(entity)));
-
-        return target.orElse(null);
+        // 按照优先级和距离排序，再从前往后检查视线
+        Comparator<LivingEntity> byDistance = Comparator.comparingDouble(e -> e.distanceToSqr(entity));
+        nearbyEntities.sort(priority != null ? priority.thenComparing(byDistance) : byDistance);
+        for (LivingEntity target : nearbyEntities) {
+            if (canSee(entity, target)) {
+                return target;
+            }
+        }
+        return null;
     }
 
     /**
@@ -66,67 +201,187 @@ public class TargetFinder {
             Class<T> targetClass,
             int maxCount) {
 
-        if (entity == null || entity.level() == null) {
+        if (entity == null || entity.level() == null || maxCount <= 0) {
             return new ArrayList<>();
         }
 
         // 创建一个以实体为中心的AABB
         AABB boundingBox = entity.getBoundingBox().inflate(range);
+        double rangeSqr = range * range;
+
+        // 获取边界内的所有指定类型的实体，此时还不检查视线
+        List<T> nearbyEntities = getCandidates(entity, boundingBox, targetClass,
+                target -> isCandidate(entity, target, rangeSqr));
 
-        // 获取边界内的所有指定类型的实体
-        List<T> nearbyEntities = entity.level().getEntitiesOfClass(
-                targetClass,
-                boundingBox,
-                target -> isValidTarget(entity, target));
+        // 从近到远收集可见的目标
+        return selectVisible(entity, nearbyEntities, Comparator.comparingDouble(e -> e.distanceToSqr(entity)),
+                maxCount);
+    }
+
+    /**
+     * 从候选目标中选出排序最靠前的若干个可见目标
+     * 用大小为 maxCount 的堆选出前几名再检查视线，不对全部候选排序；有看不见的目标时从剩余候选中补足
+     * 需要的数量不少于剩余候选时直接整体排序
+     *
+     * @param entity     寻找目标的实体
+     * @param candidates 候选目标，会被修改
+     * @param order      排序规则，越靠前越优先
+     * @param maxCount   最大返回数量
+     * @return 可见的目标列表，按排序规则排列
+     */
+    private static <T extends LivingEntity> List<T> selectVisible(LivingEntity entity, List<T> candidates,
+            Comparator<? super T> order, int maxCount) {
+        if (maxCount <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<T> targets = new ArrayList<>(Math.min(maxCount, candidates.size()));
+        while (targets.size() < maxCount && !candidates.isEmpty()) {
+            int needed = maxCount - targets.size();
 
-        // 按距离排序
-        nearbyEntities.sort(Comparator.comparingDouble(e -> e.distanceToSqr(entity)));
+            List<T> best;
+            if (needed >= candidates.size()) {
+                candidates.sort(order);
+                best = candidates;
+            } else {
+                // 堆顶是当前前几名中最靠后的一个，新候选比它靠前时替换它
+                PriorityQueue<T> heap = new PriorityQueue<>(Math.min(needed, candidates.size()) + 1,
+                        order.reversed());
+                for (T candidate : candidates) {
+                    heap.offer(candidate);
+                    if (heap.size() > needed) {
+                        heap.poll();
+                    }
+                }
 
-        // 如果超过最大数量，截取列表
-        if (nearbyEntities.size() > maxCount) {
-            return nearbyEntities.subList(0, maxCount);
+                best = new ArrayList<>(heap.size());
+                while (!heap.isEmpty()) {
+                    best.add(heap.poll());
+                }
+                Collections.reverse(best);
+            }
+
+            for (T target : best) {
+                if (canSee(entity, target)) {
+                    targets.add(target);
+                }
+            }
+
+            if (best.size() == candidates.size()) {
+                break;
+            }
+            Set<T> checked = Collections.newSetFromMap(new IdentityHashMap<>());
+            checked.addAll(best);
+            candidates.removeIf(checked::contains);
         }
+        return targets;
+    }
 
-        return nearbyEntities;
+    /**
+     * 获取范围内符合条件的候选目标
+     * 服务端从当前tick的生物网格按格子范围查询，客户端退回到普通的实体查询
+     *
+     * @param entity      寻找目标的实体
+     * @param boundingBox 查找范围
+     * @param targetClass 目标实体类型
+     * @param filter      过滤条件
+     * @return 候选目标列表
+     */
+    private static <T extends LivingEntity> List<T> getCandidates(LivingEntity entity, AABB boundingBox,
+            Class<T> targetClass, Predicate<? super T> filter) {
+        if (entity.level() instanceof ServerLevel serverLevel) {
+            List<T> candidates = new ArrayList<>();
+            LivingEntityGrid.get(serverLevel).collect(boundingBox, targetClass, entity, filter, candidates);
+            return candidates;
+        }
+        return entity.level().getEntitiesOfClass(targetClass, boundingBox, filter);
     }
 
     /**
-     * 判断目标是否是有效的
+     * 判断目标是否可以作为候选，不包含视线检查
+     * 按开销从低到高依次检查，任一阶段失败即拒绝并计入该阶段的统计
      * 
-     * @param entity 寻找目标的实体
-     * @param target 潜在的目标
-     * @return 如果目标有效则返回true
+     * @param entity   寻找目标的实体
+     * @param target   潜在的目标
+     * @param rangeSqr 查找半径的平方
+     * @return 如果目标可以作为候选则返回true
      */
-    private static boolean isValidTarget(LivingEntity entity, LivingEntity target) {
+    private static boolean isCandidate(LivingEntity entity, LivingEntity target, double rangeSqr) {
         // 避免自我定位
         if (entity == target) {
-            return false;
+            return reject(ValidationStage.IDENTITY);
         }
 
         // 确保目标存活
         if (!target.isAlive()) {
-            return false;
+            return reject(ValidationStage.ALIVE);
         }
 
-        // 如果实体是Mob，检查其目标
+        // 避免定位创造模式和旁观模式的玩家
+        if (target.isSpectator() || (target instanceof Player player && player.isCreative())) {
+            return reject(ValidationStage.GAME_MODE);
+        }
+
+        // 范围查询按方框筛选，这里按球形距离精确判断
+        if (entity.distanceToSqr(target) > rangeSqr) {
+            return reject(ValidationStage.DISTANCE);
+        }
+
+        // 不攻击同一队伍的实体，可通过配置关闭
+        if (SpelledMobsConfig.isIgnoreAlliedTargets() && entity.isAlliedTo(target)) {
+            return reject(ValidationStage.ALLY);
+        }
+
+        // 如果实体是Mob且已经有目标，只接受当前的目标
         if (entity instanceof Mob mob) {
-            // 如果已经有目标且目标不是当前检查的实体，则返回false
             LivingEntity existingTarget = mob.getTarget();
             if (existingTarget != null && existingTarget != target) {
-                return false;
+                return reject(ValidationStage.TARGET_LOCK);
             }
-
-            // 检查Mob是否可以看到目标
-            return mob.getSensing().hasLineOfSight(target);
         }
 
-        // 如果是玩家，避免定位创造模式玩家
-        if (target instanceof Player player && player.isCreative()) {
-            return false;
+        return true;
+    }
+
+    /**
+     * 记录一次在某个验证阶段被拒绝的目标
+     *
+     * @param stage 验证阶段
+     * @return 总是返回false
+     */
+    private static boolean reject(ValidationStage stage) {
+        REJECTIONS[stage.ordinal()]++;
+        return false;
+    }
+
+    /**
+     * 获取各验证阶段拒绝目标的次数，用于命令输出
+     */
+    public static String getValidationStatistics() {
+        StringBuilder builder = new StringBuilder("目标验证拒绝:");
+        for (ValidationStage stage : ValidationStage.values()) {
+            builder.append(' ').append(stage.displayName).append(' ').append(REJECTIONS[stage.ordinal()]);
         }
+        return builder.toString();
+    }
 
-        // 确保可以看见目标（使用hasLineOfSight方法代替canSee）
-        return entity.hasLineOfSight(target);
+    /**
+     * 判断实体是否能看到目标，服务端使用带缓存和每tick预算的视线检查
+     *
+     * @param entity 寻找目标的实体
+     * @param target 候选目标
+     * @return 如果能看到目标则返回true
+     */
+    private static boolean canSee(LivingEntity entity, LivingEntity target) {
+        boolean visible;
+        if (entity.level() instanceof ServerLevel) {
+            visible = LineOfSightCache.hasLineOfSight(entity, target);
+        } else if (entity instanceof Mob mob) {
+            visible = mob.getSensing().hasLineOfSight(target);
+        } else {
+            visible = entity.hasLineOfSight(target);
+        }
+        return visible || reject(ValidationStage.LINE_OF_SIGHT);
     }
 
     /**
@@ -138,28 +393,6 @@ public class TargetFinder {
      * @return 找到的目标实体，如果没有找到则返回null
      */
     public static LivingEntity findTargetWithFilter(LivingEntity entity, double range, Predicate<LivingEntity> filter) {
-        if (entity == null || entity.level() == null) {
-            return null;
-        }
-
-        // 创建一个以实体为中心的AABB
-        AABB boundingBox = entity.getBoundingBox().inflate(range);
-
-        // 获取边界内的所有符合条件的LivingEntity
-        List<LivingEntity> nearbyEntities = entity.level().getEntitiesOfClass(
-                LivingEntity.class,
-                boundingBox,
-                target -> isValidTarget(entity, target) && filter.test(target));
-
-        // 如果没有找到任何目标，返回null
-        if (nearbyEntities.isEmpty()) {
-            return null;
-        }
-
-        // 按照距离排序
-        Optional<LivingEntity> target = nearbyEntities.stream()
-                .min(Comparator.comparingDouble(e -> e.distanceToSqr(entity)));
-
-        return target.orElse(null);
+        return findFirstVisible(entity, range, null, filter);
     }
-}
\ No newline at end of file
+}
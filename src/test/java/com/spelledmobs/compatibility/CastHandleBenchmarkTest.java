@@ -0,0 +1,107 @@
+package com.spelledmobs.compatibility;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * 施法调用方式的微基准测试：Method.invoke 与常量方法句柄 invokeExact 的对比
+ * 测试环境中没有铁魔法，用形状相同的替身方法代替 AbstractSpell.onCast，只衡量调用本身的开销
+ * 计时部分需要用 gradlew test -Pbenchmark 运行
+ */
+class CastHandleBenchmarkTest {
+
+    /**
+     * 替身法术，onCast 的参数形状与铁魔法的 AbstractSpell.onCast 相同
+     */
+    public static class StandInSpell {
+        long casts;
+
+        public void onCast(Object level, int spellLevel, Object entity, Object castSource, Object magicData) {
+            casts += spellLevel;
+        }
+    }
+
+    private static final Method ON_CAST_METHOD;
+    // 与 IronsSpellsCompat.Handles 相同：静态常量，参数统一转换为Object
+    private static final MethodHandle ON_CAST;
+
+    static {
+        try {
+            ON_CAST_METHOD = StandInSpell.class.getDeclaredMethod("onCast",
+                    Object.class, int.class, Object.class, Object.class, Object.class);
+            ON_CAST = MethodHandles.lookup().unreflect(ON_CAST_METHOD)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class, int.class,
+                            Object.class, Object.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int CALLS_PER_ROUND = 2_000_000;
+
+    private static void castByReflection(Object spell, int spellLevel) throws Throwable {
+        ON_CAST_METHOD.invoke(spell, null, spellLevel, null, null, null);
+    }
+
+    private static void castByHandle(Object spell, int spellLevel) throws Throwable {
+        ON_CAST.invokeExact(spell, (Object) null, spellLevel, (Object) null, (Object) null, (Object) null);
+    }
+
+    @Test
+    void bothCallPathsReachTheSpell() throws Throwable {
+        StandInSpell spell = new StandInSpell();
+        castByReflection(spell, 2);
+        castByHandle(spell, 3);
+
+        assertEquals(5, spell.casts);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "spelledmobs.benchmark", matches = "true")
+    void compareReflectionWithMethodHandle() throws Throwable {
+        StandInSpell reflectionSpell = new StandInSpell();
+        StandInSpell handleSpell = new StandInSpell();
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runReflection(reflectionSpell);
+            runHandle(handleSpell);
+        }
+
+        long reflectionNanos = 0;
+        long handleNanos = 0;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            reflectionNanos += runReflection(reflectionSpell);
+            handleNanos += runHandle(handleSpell);
+        }
+
+        double calls = (double) MEASURED_ROUNDS * CALLS_PER_ROUND;
+        System.out.printf("[SpelledMobs] Method.invoke: %.2f ns/次, MethodHandle.invokeExact: %.2f ns/次%n",
+                reflectionNanos / calls, handleNanos / calls);
+        // 使用结果，避免调用被当作无用代码消除
+        assertEquals(reflectionSpell.casts, handleSpell.casts);
+    }
+
+    private static long runReflection(StandInSpell spell) throws Throwable {
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS_PER_ROUND; i++) {
+            castByReflection(spell, 1);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runHandle(StandInSpell spell) throws Throwable {
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS_PER_ROUND; i++) {
+            castByHandle(spell, 1);
+        }
+        return System.nanoTime() - start;
+    }
+}
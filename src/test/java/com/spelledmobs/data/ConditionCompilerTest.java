@@ -0,0 +1,88 @@
+package com.spelledmobs.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.spelledmobs.data.SpellCondition.ComparisonOperator;
+import com.spelledmobs.data.conditions.CompositeCondition;
+import com.spelledmobs.data.conditions.CompositeCondition.Mode;
+import com.spelledmobs.data.conditions.ConstantCondition;
+import com.spelledmobs.data.conditions.HealthPercentageCondition;
+import com.spelledmobs.data.conditions.RandomChanceCondition;
+import com.spelledmobs.data.conditions.TargetDistanceCondition;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 条件编译器测试：化简不能改变条件的语义
+ */
+class ConditionCompilerTest {
+
+    private static SpellCondition random(double percent) {
+        return new RandomChanceCondition(ComparisonOperator.LESS_THAN, percent, false, null);
+    }
+
+    private static SpellCondition health(double percent) {
+        return new HealthPercentageCondition(ComparisonOperator.GREATER_THAN, percent, false, null);
+    }
+
+    private static SpellCondition distance(ComparisonOperator operator, double value) {
+        return new TargetDistanceCondition(operator, value, false, null);
+    }
+
+    @Test
+    void duplicateDeterministicConditionsAreMerged() {
+        SpellCondition compiled = ConditionCompiler.compile(new CompositeCondition(Mode.ALL,
+                List.of(health(50), health(50))));
+
+        assertInstanceOf(HealthPercentageCondition.class, compiled);
+    }
+
+    @Test
+    void randomChanceConditionsAreNotMerged() {
+        SpellCondition compiled = ConditionCompiler.compile(new CompositeCondition(Mode.ALL,
+                List.of(random(50), random(50))));
+
+        CompositeCondition composite = assertInstanceOf(CompositeCondition.class, compiled);
+        assertEquals(2, composite.getChildren().size());
+    }
+
+    @Test
+    void groupsContainingRandomChanceAreNotMerged() {
+        // 两个分支各自独立掷骰，合并为一个会改变施法概率
+        SpellCondition branch = new CompositeCondition(Mode.ALL, List.of(random(50), health(20)));
+        SpellCondition sameBranch = new CompositeCondition(Mode.ALL, List.of(random(50), health(20)));
+        SpellCondition compiled = ConditionCompiler.compile(new CompositeCondition(Mode.ANY,
+                List.of(branch, sameBranch)));
+
+        CompositeCondition composite = assertInstanceOf(CompositeCondition.class, compiled);
+        assertEquals(Mode.ANY, composite.getMode());
+        assertEquals(2, composite.getChildren().size());
+
+        SpellCondition negated = new CompositeCondition(Mode.NOT, List.of(random(30)));
+        SpellCondition sameNegated = new CompositeCondition(Mode.NOT, List.of(random(30)));
+        compiled = ConditionCompiler.compile(new CompositeCondition(Mode.ALL, List.of(negated, sameNegated)));
+
+        composite = assertInstanceOf(CompositeCondition.class, compiled);
+        assertEquals(2, composite.getChildren().size());
+    }
+
+    @Test
+    void negativeUpperDistanceBoundIsFalse() {
+        SpellCondition compiled = ConditionCompiler.compile(new CompositeCondition(Mode.ALL,
+                List.of(distance(ComparisonOperator.LESS_THAN_OR_EQUALS, -1),
+                        distance(ComparisonOperator.GREATER_THAN_OR_EQUALS, -10))));
+
+        assertSame(ConstantCondition.FALSE, compiled);
+    }
+
+    @Test
+    void emptyDistanceRangeIsFalse() {
+        SpellCondition compiled = ConditionCompiler.compile(new CompositeCondition(Mode.ALL,
+                List.of(distance(ComparisonOperator.LESS_THAN, 5),
+                        distance(ComparisonOperator.GREATER_THAN, 10))));
+
+        assertSame(ConstantCondition.FALSE, compiled);
+    }
+}
@@ -0,0 +1,123 @@
+package com.spelledmobs.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 加权采样器测试：前缀和二分抽取与原来的“按权重展开列表再随机取下标”方式结果一致
+ */
+class WeightedSpellSamplerTest {
+
+    private static SpellEntry spell(String id, int weight) {
+        return new SpellEntry("test:" + id, 1, 1, 20, 40, weight, 1.0f);
+    }
+
+    /**
+     * 原来的抽取方式：每个法术按权重重复加入列表，再随机取一个下标
+     */
+    private static SpellEntry sampleExpanded(List<SpellEntry> spells, Random random) {
+        List<SpellEntry> weightedSpells = new ArrayList<>();
+        for (SpellEntry spell : spells) {
+            for (int i = 0; i < spell.getWeight(); i++) {
+                weightedSpells.add(spell);
+            }
+        }
+        if (weightedSpells.isEmpty()) {
+            return null;
+        }
+        return weightedSpells.get(random.nextInt(weightedSpells.size()));
+    }
+
+    private static WeightedSpellSampler samplerOf(List<SpellEntry> spells) {
+        WeightedSpellSampler sampler = new WeightedSpellSampler();
+        for (SpellEntry spell : spells) {
+            sampler.add(spell);
+        }
+        return sampler;
+    }
+
+    @Test
+    void sameSeedGivesSameDrawsAsExpandedList() {
+        List<SpellEntry> spells = List.of(spell("a", 3), spell("b", 4), spell("c", 2), spell("d", 1),
+                spell("e", 0), spell("f", 7));
+        WeightedSpellSampler sampler = samplerOf(spells);
+
+        // 两种方式都只调用一次 nextInt(总权重)，同一个随机值必须落到同一个法术上
+        Random prefixRandom = new Random(12345L);
+        Random expandedRandom = new Random(12345L);
+        for (int i = 0; i < 10_000; i++) {
+            assertSame(sampleExpanded(spells, expandedRandom), sampler.sample(prefixRandom));
+        }
+    }
+
+    @Test
+    void drawFrequenciesMatchWeights() {
+        List<SpellEntry> spells = List.of(spell("a", 1), spell("b", 5), spell("c", 10), spell("d", 84));
+        WeightedSpellSampler sampler = samplerOf(spells);
+
+        int draws = 200_000;
+        Map<SpellEntry, Integer> counts = new IdentityHashMap<>();
+        Random random = new Random(42L);
+        for (int i = 0; i < draws; i++) {
+            counts.merge(sampler.sample(random), 1, Integer::sum);
+        }
+
+        // 卡方检验，自由度为3，0.999分位数约为16.27
+        double chiSquare = 0;
+        for (SpellEntry spell : spells) {
+            double expected = draws * spell.getWeight() / 100.0;
+            double observed = counts.getOrDefault(spell, 0);
+            chiSquare += (observed - expected) * (observed - expected) / expected;
+        }
+        assertTrue(chiSquare < 16.27, "卡方统计量过大: " + chiSquare);
+    }
+
+    @Test
+    void zeroWeightSpellsAreNeverDrawn() {
+        SpellEntry never = spell("never", 0);
+        SpellEntry always = spell("always", 1);
+        WeightedSpellSampler sampler = samplerOf(List.of(never, always, spell("negative", -3)));
+
+        Random random = new Random(7L);
+        for (int i = 0; i < 1_000; i++) {
+            assertSame(always, sampler.sample(random));
+        }
+    }
+
+    @Test
+    void resetClearsCandidates() {
+        WeightedSpellSampler sampler = samplerOf(List.of(spell("a", 2), spell("b", 3)));
+        sampler.reset();
+
+        assertTrue(sampler.isEmpty());
+        assertNull(sampler.sample(new Random(1L)));
+
+        SpellEntry only = spell("c", 5);
+        sampler.add(only);
+        assertSame(only, sampler.sample(new Random(1L)));
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        List<SpellEntry> spells = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            spells.add(spell("s" + i, i % 4 + 1));
+        }
+        WeightedSpellSampler sampler = samplerOf(spells);
+
+        Random prefixRandom = new Random(99L);
+        Random expandedRandom = new Random(99L);
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(sampleExpanded(spells, expandedRandom), sampler.sample(prefixRandom));
+        }
+    }
+}